@@ -1,7 +1,12 @@
 import chess.UI.GameOperation;
 
 public class Main {
-	public static void main(String args[]) {
-		new GameOperation();
+	// "-uci" starts the engine without window (see chess.uci.Uci),
+	// the window is only created for the game
+	public static void main(String args[]) throws java.io.IOException {
+		if (args.length > 0 && args[0].equals("-uci"))
+			chess.uci.Uci.main(args);
+		else
+			new GameOperation();
 	}
 }
@@ -0,0 +1,69 @@
+package chess.bench;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import chess.board.*;
+import chess.rules.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class BoardBenchmark {
+	@Param({"opening", "middlegame", "endgame"})
+	public String phase;
+	private Board board;
+	private EnumColors color;
+	private MoveList moves = new MoveList();  // Valid moves of the position
+	
+	@Setup
+	public void setup() {
+		board = new Board();
+		color = Fen.load(board, Positions.get(phase));
+		new MoveGenerator(board, color).generateMoves(moves);
+	}
+	
+	@Benchmark
+	public Board cloneBoard() {
+		return board.cloneBoard();
+	}
+	
+	// Each valid move of the position is made and undone, like the search does
+	@Benchmark
+	public void makeUnmake(Blackhole blackhole) {
+		int i;
+		for (i = 0; i < moves.size(); i++) {
+			board.makeMove(moves.get(i));
+			blackhole.consume(board.getOccupied());
+			board.unmakeMove();
+		}
+	}
+	
+	// Each valid move of the position is played with movePiece, like the window
+	// does. It can not be undone, so each move is played on a new copy: the time
+	// of movePiece is this one minus cloneBoard for each move
+	@Benchmark
+	public void movePiece(Blackhole blackhole) {
+		Board copy;
+		int i;
+		for (i = 0; i < moves.size(); i++) {
+			copy = board.cloneBoard();
+			copy.movePiece(moves.get(i));
+			blackhole.consume(copy.getOccupied());
+		}
+	}
+	
+	@Benchmark
+	public boolean kingInDanger() {
+		return Rules.kingInDanger(board, color);
+	}
+	
+	@Benchmark
+	public boolean trappedKing() {
+		return Rules.trappedKing(board, color);
+	}
+}
@@ -0,0 +1,43 @@
+package chess.bench;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import chess.board.*;
+import chess.pieces.*;
+
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(2)
+public class PieceBenchmark {
+	@Param({"opening", "middlegame", "endgame"})
+	public String phase;
+	@Param({"PAWN", "KNIGHT", "BISHOP", "ROOK", "QUEEN", "KING"})
+	public EnumPieces type;
+	private Board board;
+	private long squares;  // The pieces of the type, both colors
+	
+	@Setup
+	public void setup() {
+		board = new Board();
+		Fen.load(board, Positions.get(phase));
+		squares = board.getBitboard(type, EnumColors.WHITE) | board.getBitboard(type, EnumColors.BLACK);
+	}
+	
+	// The valid moves of all pieces of the type, like they are found
+	// when a piece is clicked on the UI
+	@Benchmark
+	public void getValidMoves(Blackhole blackhole) {
+		long pieces;
+		int square;
+		for (pieces = squares; pieces != 0; pieces &= pieces - 1) {
+			square = Long.numberOfTrailingZeros(pieces);
+			blackhole.consume(board.getPiece(square).getValidMoves(board,
+					Bitboards.getX(square), Bitboards.getY(square), true));
+		}
+	}
+}
@@ -0,0 +1,23 @@
+package chess.bench;
+
+public class Positions {
+	// Fixed positions for the benchmarks, one of each part of the game, so the
+	// numbers of different runs can be compared
+	public static final String OPENING = "r1bqkbnr/pppp1ppp/2n5/4p3/4P3/5N2/PPPP1PPP/RNBQKB1R w KQkq - 2 3";
+	public static final String MIDDLEGAME = "r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1";
+	public static final String ENDGAME = "8/5k2/3bp1p1/1p1n4/1P1NQ3/4PK2/5P2/2r5 w - - 0 40";
+	
+	// Get the FEN of a part of the game: opening, middlegame or endgame
+	public static String get(String phase) {
+		switch (phase) {
+			case "opening":
+				return OPENING;
+			case "middlegame":
+				return MIDDLEGAME;
+			case "endgame":
+				return ENDGAME;
+			default:
+				throw new IllegalArgumentException("Unknown phase: " + phase);
+		}
+	}
+}
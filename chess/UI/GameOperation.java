@@ -1,90 +1,286 @@
 package chess.UI;
 import java.awt.Color;
-import java.util.ArrayList;
+import java.io.IOException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.ThreadFactory;
 import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
 import javax.swing.UIManager;
 
 import chess.board.*;
+import chess.engine.*;
+import chess.game.*;
 import chess.pieces.*;
-import chess.rules.Rules;
+import chess.rules.*;
 
 public class GameOperation extends UI {
-	private Board board = new Board();
-	private ArrayList<int[]> validMoves = new ArrayList<>();
+	private MoveList validMoves = new MoveList();  // Valid moves of the piece clicked
 	private int clicked[] = new int[2];
 	private int lastMove[] = new int[4];
-	private EnumColors turn = EnumColors.WHITE;
-	private boolean firstMove = true, invertBoard = false;
+	private boolean invertBoard = false;
 	private String colorClicked = "#cccccc", colorValidMove = "#f4f680";
-	private ArrayList<int[]> moves = new ArrayList<>();
-	private int movesLen = 0;
+	private static final int NO_MOVE = -1;
+	// The computer searches its moves on other thread, so the window does not freeze.
+	// A search that is canceled (the game changed) has other id than the current one
+	private static final int COMPUTER_TIME = 2000;  // Milliseconds for each move of the computer
+	// The threads of the search can be chosen with -Dchess.threads=n, all processors by default
+	private static final int COMPUTER_THREADS = Integer.getInteger("chess.threads",
+			Runtime.getRuntime().availableProcessors());
+	private TranspositionTable table = new TranspositionTable(32);
+	private ParallelSearch search = new ParallelSearch(table, COMPUTER_THREADS);
+	private ExecutorService computer = newDaemonExecutor("computer");
+	private volatile int searchId = 0;
+	// The computer plays the moves of the opening book while it has the position,
+	// the book is chosen with -Dchess.book=file (see chess.tools.BookBuilder)
+	private static final String BOOK_FILE = System.getProperty("chess.book", "book.bin");
+	private OpeningBook book = openBook();
+	// With few pieces the endgame tables have the exact result: the computer plays
+	// the perfect move and a game that can not be won ends as a draw. The folder
+	// is chosen with -Dchess.tablebases=folder (see chess.tools.TablebaseGenerator)
+	private static final String TABLEBASES_FOLDER = System.getProperty("chess.tablebases", "tablebases");
+	private Tablebases tablebases = openTablebases();
+	// The board, the history and the valid moves of the game (see GameSession),
+	// the window only shows them and sends the clicks
+	private GameSession session = new GameSession(tablebases);
+	private boolean vsComputer = false, thinking = false, gameOver = false;
+	// The valid moves of each position are generated once on other thread after
+	// the move, a click only looks for the moves of its piece and the end of the
+	// game is checked with the same moves when they are ready
+	private ExecutorService generator = newDaemonExecutor("moves");
+	private FutureTask<LegalMoves> legalMoves;
+	private int positionId = 0;
+	private boolean positionChecked = false;  // The end of the game was checked for this position
 	
 	public GameOperation() {
+		search.setTablebases(tablebases);
 		restartClicked();
 	}
 	
+	// The threads do not keep the program running, the window
+	// can be closed while they work
+	private static ExecutorService newDaemonExecutor(final String name) {
+		return Executors.newSingleThreadExecutor(new ThreadFactory() {
+			public Thread newThread(Runnable task) {
+				Thread thread = new Thread(task, name);
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+	}
+	
+	private static OpeningBook openBook() {
+		try {
+			return new OpeningBook(BOOK_FILE);
+		}
+		catch (IOException e) {
+			return null;  // Without a book the computer searches all its moves
+		}
+	}
+	
+	private static Tablebases openTablebases() {
+		try {
+			return Tablebases.open(TABLEBASES_FOLDER);
+		}
+		catch (IOException e) {
+			return new Tablebases();  // The endgames are searched like the rest of the game
+		}
+	}
+	
 	// Initialize all variables
 	private void initializeGame() {
-		board.setDefaultBoard();
+		session.restart();
 		validMoves.clear();
-		turn = EnumColors.WHITE;
-		firstMove = true;
 		invertBoard = false;
-		moves.clear();
-		movesLen = 0;
+		gameOver = false;
 	}
 	
 	// Function for a square on board clicked
 	protected void squareClicked(int x, int y) {
+		boolean possibleMove = true;
+		int move;
+		Piece piece;
+		if (thinking || gameOver)
+			return;  // Wait for the move of the computer, or the game ended
 		x = invert(x);  // Board could be inverted
 		y = invert(y);
-		boolean possibleMove = true;
-		Piece piece = board.getPiece(x, y);  // Piece clicked
+		piece = session.getPiece(x, y);  // Piece clicked
 		if (piece != null) {  // A piece was clicked
-			if (piece.getColor() == turn) {  // Get the moves of that piece
+			if (piece.getColor() == session.getTurn()) {  // Get the moves of that piece
 				possibleMove = false;
-				validMoves = piece.getValidMoves(board, true);  // Do all stuff with the piece logic
+				validMoves.clear();  // Look for its moves in the moves of the position
+				currentMoves().getMoves(Bitboards.square(x, y), validMoves);
 			}
 		}
 		// It was clicked an empty square or a piece of the opposite color
 		if (possibleMove) {
-			if (correctMove(x, y)) {  // Move is in valid moves
-				updateMoveHistory(x, y);  // Save this move
-				makeMove(x, y);  // Move the piece on board
-			}
+			move = correctMove(x, y);
+			if (move != NO_MOVE && makeMove(move))  // Move is in valid moves
+				positionChanged();
 			validMoves.clear();  // Wait for other piece clicked
 		}
 		clicked = new int[] {x, y};  // This is the last square clicked
 		setBoardColors(! possibleMove);
+		checkComputerTurn();
 	}
 	
-	private boolean correctMove(int x, int y) {
-		for (int[] move : validMoves)
-			if (move[0] == x && move[1] == y)
-				return true;  // The move is in valid moves
-		return false;  // This is not a valid move for the last piece clicked
+	// Find the move to the position (x, y) in the valid moves, if it is
+	// a coronation, the player chooses the piece before the move is made
+	private int correctMove(int x, int y) {
+		int i, move;
+		EnumPieces promotion = null;
+		for (i = 0; i < validMoves.size(); i++) {
+			move = validMoves.get(i);
+			if (Bitboards.getX(Move.getTo(move)) != x || Bitboards.getY(Move.getTo(move)) != y)
+				continue;
+			if (Move.getPromotion(move) == EnumPieces.NONE)
+				return move;  // The move is in valid moves
+			if (promotion == null)
+				promotion = coronation();
+			if (Move.getPromotion(move) == promotion)
+				return move;
+		}
+		return NO_MOVE;  // This is not a valid move for the last piece clicked
+	}
+	
+	// The session saves what each move changed, so the moves of
+	// the history can be undone one by one. False if the session did
+	// not play it, then the board and the last move are not changed
+	private boolean makeMove(int move) {
+		if (! session.play(move))  // Do all stuff with the board logic, including coronation
+			return false;
+		setLastMove();
+		return true;
+	}
+	
+	// The last move of the game is shown on the board
+	private void setLastMove() {
+		int move = session.getLastMove(), from = Move.getFrom(move), to = Move.getTo(move);
+		lastMove = new int[] {Bitboards.getX(from), Bitboards.getY(from),
+				Bitboards.getX(to), Bitboards.getY(to)};
 	}
 	
-	private void makeMove(int x, int y) {
-		Piece pawn;
-		firstMove = false;
-		turn = turn == EnumColors.WHITE ? EnumColors.BLACK : EnumColors.WHITE;  // Change turn
-		lastMove = new int[] {clicked[0], clicked[1], x, y};  // Save last move
-		board.movePiece(clicked[0], clicked[1], x, y);  // Do all stuff with the board logic
-		if (Rules.trappedKing(board, turn)) {  // The opponent doesn't have valid movements, end of game
-			if (Rules.kingInDanger(board, turn))
-				checkmate(turn);
-			else
-				tiedGame();
+	// Start the generation of the valid moves of the new position, the
+	// moves of a position that was left are not checked
+	private void positionChanged() {
+		final int id = ++positionId;
+		positionChecked = false;
+		legalMoves = new FutureTask<LegalMoves>(new Callable<LegalMoves>() {
+			public LegalMoves call() {
+				return session.getLegalMoves();  // The session keeps them for the next calls
+			}
+		}) {
+			protected void done() {
+				SwingUtilities.invokeLater(new Runnable() {
+					public void run() {
+						positionReady(id);
+					}
+				});
+			}
+		};
+		generator.execute(legalMoves);
+	}
+	
+	// The valid moves of the current position, a click made before
+	// they are ready waits for them
+	private LegalMoves currentMoves() {
+		try {
+			return legalMoves.get();
+		}
+		catch (InterruptedException | ExecutionException e) {
+			throw new IllegalStateException("The valid moves could not be generated", e);
+		}
+	}
+	
+	// Check the end of the game with the valid moves of the position
+	private void positionReady(int id) {
+		if (id != positionId)
+			return;  // Other move was made
+		currentMoves();  // Wait for the moves, the status is checked with them
+		positionChecked = true;
+		gameOver = true;
+		switch (session.getStatus()) {
+			case CHECKMATE:  // The opponent doesn't have valid movements and its king is attacked
+				checkmate(session.getTurn());
+				break;
+			case STALEMATE:
+				tiedGame("Tablas por rey ahogado");
+				break;
+			case REPETITION:  // The same position for the third time
+				tiedGame("Tablas por triple repetición");
+				break;
+			case FIFTY_MOVES:  // 50 moves without eats or pawn moves
+				tiedGame("Tablas por la regla de los 50 movimientos");
+				break;
+			case DRAWN_ENDGAME:  // Nobody can win with perfect play
+				tiedGame("Tablas: ningún jugador puede ganar");
+				break;
+			default:
+				gameOver = false;
+				break;
 		}
-		pawn = Rules.coronation(board);
-		if (pawn != null)  // There is a pawn on a border, it means coronation
-			coronation(pawn);
+		checkComputerTurn();
+	}
+	
+	// The computer plays the pieces on the top of the board
+	private EnumColors computerColor() {
+		return invertBoard ? EnumColors.WHITE : EnumColors.BLACK;
+	}
+	
+	// Start the search of the computer if it is its turn
+	private void checkComputerTurn() {
+		final Snapshot position;
+		final int id, number;
+		if (! vsComputer || ! positionChecked || gameOver || thinking || session.getTurn() != computerColor())
+			return;
+		position = session.getSnapshot();
+		id = ++searchId;
+		number = search.prepare();  // A cancel from now on stops this search, even before it starts
+		thinking = true;
+		computer.execute(new Runnable() {
+			public void run() {
+				final int move;
+				Board board = position.toBoard();  // The board of the search is created on this thread
+				int found = book == null ? Search.NO_MOVE : book.getMove(board);
+				if (id != searchId)
+					return;  // It was canceled before it started
+				if (found == Search.NO_MOVE)  // The position is not on the book
+					found = search.findBestMove(board, COMPUTER_TIME, 64, number);
+				move = found;
+				SwingUtilities.invokeLater(new Runnable() {
+					public void run() {
+						computerMoved(id, move);
+					}
+				});
+			}
+		});
+	}
+	
+	// The computer plays its move through the same way as a player
+	private void computerMoved(int id, int move) {
+		if (id != searchId)
+			return;  // The game changed during the search
+		thinking = false;
+		if (move == Search.NO_MOVE || ! makeMove(move))
+			return;
+		positionChanged();
+		validMoves.clear();
+		setBoardColors(false);
+	}
+	
+	// Stop the search of the computer, its move will not be played
+	private void cancelComputer() {
+		searchId++;
+		search.stop();
+		thinking = false;
 	}
 	
-	private void tiedGame() {
+	private void tiedGame(String reason) {
 		JOptionPane.showMessageDialog(null,
-				"Tablas por rey ahogado",
+				reason,
 				"EMPATE",
 				JOptionPane.DEFAULT_OPTION);
 	}
@@ -96,8 +292,7 @@ public class GameOperation extends UI {
 				JOptionPane.DEFAULT_OPTION);
 	}
 	
-	private void coronation(Piece pawn) {  // Show options for coronation
-		Piece piece = null;
+	private EnumPieces coronation() {  // Show options for coronation
 		String options[] = {"Dama", "Caballo", "Torre", "Alfil"};
 		int choice = JOptionPane.showOptionDialog(
 					    null,
@@ -109,38 +304,29 @@ public class GameOperation extends UI {
 					    options,
 					    options[0]
 					);
-		switch (choice) {  // Create the piece chosen
+		switch (choice) {  // The piece chosen
 			case 1:
-				piece = new Knight(pawn.getX(), pawn.getY(), pawn.getColor());
-				break;
+				return EnumPieces.KNIGHT;
 			case 2:
-				piece = new Rook(pawn.getX(), pawn.getY(), pawn.getColor(), true);
-				break;
+				return EnumPieces.ROOK;
 			case 3:
-				piece = new Bishop(pawn.getX(), pawn.getY(), pawn.getColor());
-				break;
+				return EnumPieces.BISHOP;
 			default:
-				piece = new Queen(pawn.getX(), pawn.getY(), pawn.getColor());
+				return EnumPieces.QUEEN;
 		}
-		board.addPiece(piece);  // Add the piece to the board
-	}
-	
-	private void updateMoveHistory(int x, int y) {
-		while (moves.size() > movesLen)  // Remove unnecessary saved moves
-			moves.remove(moves.size() - 1);
-		moves.add(new int[] {clicked[0], clicked[1], x, y});
-		movesLen++;  // Save this movement in history game
 	}
 	
 	private void setBoardColors(boolean pieceClicked) {
-		int i;
+		int i, to;
 		defaultSquaresColor();  // The original color of squares
-		if (! firstMove) {  // In first move, there is not a previous square clicked
+		if (session.getMoveCount() > 0) {  // In first move, there is not a previous square clicked
 			for (i = 0; i < lastMove.length; i += 2)  // Show last move made
 				squares[invert(lastMove[i + 1])][invert(lastMove[i])].setBackground(Color.decode(colorClicked));
 		}
-		for (int[] move : validMoves)  // Show valid moves for piece clicked
-			squares[invert(move[1])][invert(move[0])].setBackground(Color.decode(colorValidMove));
+		for (i = 0; i < validMoves.size(); i++) {  // Show valid moves for piece clicked
+			to = Move.getTo(validMoves.get(i));
+			squares[invert(Bitboards.getY(to))][invert(Bitboards.getX(to))].setBackground(Color.decode(colorValidMove));
+		}
 		if (pieceClicked)  // Show piece clicked
 			squares[invert(clicked[1])][invert(clicked[0])].setBackground(Color.decode(colorClicked));
 		setImagesUI();  // Update images on UI
@@ -155,55 +341,72 @@ public class GameOperation extends UI {
 		return position;  // White pieces in front
 	}
 	
-	// Undo a movement
+	// Undo a movement, the moves after it are kept to be redone
 	protected void backClicked() {
-		int i = 0, aux = movesLen - 1;
-		ArrayList<int[]> aux2 = new ArrayList<>();
-		boolean aux3 = invertBoard;
-		aux2.addAll(moves);
-		if (movesLen <= 0)  // There are no more moves to undo
+		if (session.getMoveCount() <= 0)  // There are no more moves to undo
+			return;
+		cancelComputer();
+		session.back();
+		if (session.getMoveCount() > 0)  // The move before it is shown as the last move
+			setLastMove();
+		validMoves.clear();
+		if (vsComputer && session.getTurn() == computerColor() && session.getMoveCount() > 0) {
+			backClicked();  // Also undo the move of the computer
 			return;
-		initializeGame();  // Restart all variables
-		movesLen = aux;  // Get variables saved before restart
-		moves.addAll(aux2);
-		invertBoard = aux3;
-		while (i < movesLen) {  // Do all moves until the previous
-			clicked = new int[] {moves.get(i)[0], moves.get(i)[1]};
-			makeMove(moves.get(i)[2], moves.get(i)[3]);
-			i++;
 		}
+		positionChanged();
 		setBoardColors(false);
+		checkComputerTurn();
 	}
 	
 	// Redo a movement
 	protected void nextClicked() {
-		if (movesLen >= moves.size())  // This is the last move
+		if (session.getMoveCount() >= session.getHistorySize())  // This is the last move
+			return;
+		cancelComputer();
+		session.next();  // Make the next move saved
+		setLastMove();
+		if (vsComputer && session.getTurn() == computerColor() && session.getMoveCount() < session.getHistorySize()) {
+			nextClicked();  // Also redo the move of the computer
 			return;
-		clicked = new int[] {moves.get(movesLen)[0], moves.get(movesLen)[1]};
-		makeMove(moves.get(movesLen)[2], moves.get(movesLen)[3]);
-		movesLen++;  // Make the next move saved
+		}
+		positionChanged();
 		validMoves.clear();
 		setBoardColors(false);
+		checkComputerTurn();
 	}
 	
 	// Invert the position of pieces on UI
 	protected void invertClicked() {
+		cancelComputer();
 		invertBoard = ! invertBoard;
 		validMoves.clear();
 		setBoardColors(false);
+		checkComputerTurn();  // The computer could change of color
 	}
 	
 	protected void restartClicked() {
+		cancelComputer();
 		initializeGame();  // Initialize all variables
+		table.clear();  // The positions of the last game are not useful
+		positionChanged();
 		setBoardColors(false);  // Set default colors
 	}
 	
+	// Play against the computer or against other player
+	protected void computerClicked(boolean selected) {
+		cancelComputer();
+		vsComputer = selected;
+		checkComputerTurn();
+	}
+	
 	private void setImagesUI() {  // Show pieces on UI
+		Snapshot position = session.getSnapshot();  // All squares of the same position, without locking the game
 		int x, y;
 		Piece piece;
 		for (y = 0; y < 8; y++) {
 			for (x = 0; x < 8; x++) {
-				piece = board.getPiece(x, y);
+				piece = position.getPiece(x, y);
 				if (piece == null)  // Empty square
 					squares[invert(y)][invert(x)].setIcon(null);
 				else  // There is a piece
@@ -25,6 +25,7 @@ public abstract class UI {
 	protected abstract void nextClicked();
 	protected abstract void invertClicked();
 	protected abstract void restartClicked();
+	protected abstract void computerClicked(boolean selected);
 		
 	private void createWindow() {
 		int i, j;
@@ -101,6 +102,19 @@ public abstract class UI {
             }
         });
 		
+		// Button to play against the computer, it plays the pieces on the top of the board
+		JToggleButton computer = new JToggleButton();
+		computer.setBounds(100, 450, squareSize*3, squareSize);
+		computer.setFont(font);
+		computer.setText("VS COMPUTADORA");
+		computer.setBackground(Color.LIGHT_GRAY);
+		window.add(computer);
+		computer.addActionListener(new ActionListener() {
+            public void actionPerformed(ActionEvent e) {
+            	computerClicked(computer.isSelected());
+            }
+        });
+		
 		// Resize all piece images to the button size
 		resizeImages(squareSize);
 		for(i = 0; i<8; i++) {
@@ -0,0 +1,209 @@
+package chess.board;
+
+public class Bitboards {
+	// A bitboard is a long where the bit number (y * 8 + x) represents the
+	// square (x, y) of the board. All attack tables are computed only once,
+	// when this class is loaded, and then they are shared by all boards
+	private static final long KNIGHT_ATTACKS[] = new long[64];
+	private static final long KING_ATTACKS[] = new long[64];
+	private static final long PAWN_ATTACKS[][] = new long[2][64];  // [color][square]
+	private static final long BETWEEN[][] = new long[64][64];  // Squares between 2 aligned squares
+	
+	// Magic bitboards for sliding pieces (rook, bishop and queen)
+	private static final long ROOK_MASKS[] = new long[64];
+	private static final int ROOK_SHIFTS[] = new int[64];
+	private static final int ROOK_OFFSETS[] = new int[64];
+	private static final long ROOK_TABLE[];
+	private static final long BISHOP_MASKS[] = new long[64];
+	private static final int BISHOP_SHIFTS[] = new int[64];
+	private static final int BISHOP_OFFSETS[] = new int[64];
+	private static final long BISHOP_TABLE[];
+	
+	private static final int ROOK_DIRECTIONS[][] = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+	private static final int BISHOP_DIRECTIONS[][] = {{1, 1}, {-1, 1}, {-1, -1}, {1, -1}};
+	private static final int KNIGHT_JUMPS[][] = {{-1, -2}, {1, -2}, {-2, -1}, {2, -1},
+			{-2, 1}, {2, 1}, {-1, 2}, {1, 2}};
+	private static final int KING_JUMPS[][] = {{-1, -1}, {0, -1}, {1, -1}, {-1, 0},
+			{1, 0}, {-1, 1}, {0, 1}, {1, 1}};
+	private static final int WHITE_PAWN_JUMPS[][] = {{-1, 1}, {1, 1}};
+	private static final int BLACK_PAWN_JUMPS[][] = {{-1, -1}, {1, -1}};
+	// The magic numbers were found once with a random search of numbers with few
+	// bits, each one maps every occupancy of a square to a different index
+	private static final long ROOK_MAGICS[] = {
+			0x0080021620804001L, 0x0040001000200041L, 0x0200102200088040L, 0x4080040800821000L,
+			0x2200020004200810L, 0x4B00020C000D0008L, 0x01000C4183000600L, 0x2080010000402C80L,
+			0x8002800826864000L, 0x0410802000884000L, 0x0C01004010200100L, 0x020300100100203CL,
+			0x0450800801040080L, 0x4010800200040080L, 0x8804000208048110L, 0x0C40800080004100L,
+			0xA2018880024004A0L, 0x0080848020004004L, 0x1010410010200101L, 0x2010008008008010L,
+			0x0A08010004110008L, 0x0802080104209040L, 0x0080040090010802L, 0x0280020000841069L,
+			0x080C400080248000L, 0x2048850100224008L, 0x00200800C0300040L, 0x11400D0100201000L,
+			0x0041001100080204L, 0x4802000200040810L, 0x0100080C00103601L, 0x0020084200043085L,
+			0x0100804000800022L, 0x0460401000402002L, 0x8309002001001044L, 0x0000800800801000L,
+			0x0000800800800400L, 0xB542040080800200L, 0x1041000401000200L, 0x000318B04A000401L,
+			0x0280082000484000L, 0x0080400081010030L, 0x0010002000108080L, 0x012010002101000AL,
+			0x0801000408010012L, 0x0004008002008004L, 0x0AD1005200110014L, 0x4000004110820004L,
+			0x9400400080003080L, 0x0000802200490200L, 0x1521100080200280L, 0x9021000824100100L,
+			0x0081080080840280L, 0x0002000904100200L, 0x0130024801302400L, 0x0102008100442200L,
+			0x0080984063800101L, 0x0016810201412812L, 0x40200101603008C1L, 0x2851100004082101L,
+			0x1049001002880005L, 0x0081000804000201L, 0x100020901208410CL, 0x0101064400813102L
+	};
+	private static final long BISHOP_MAGICS[] = {
+			0x24E0440C00802202L, 0x00881808841A4500L, 0x29C1021085004190L, 0x18C4041080042020L,
+			0x0841104000008108L, 0x890828080880C088L, 0x0006021024062018L, 0x2000404044104040L,
+			0x09000504104A0210L, 0x0088390204040820L, 0x4001420082008402L, 0x028108048B001142L,
+			0x1C00140421001008L, 0x0008021212200400L, 0x080000581A082004L, 0x3000048208027204L,
+			0x0120004044148482L, 0x4021000808108090L, 0x0084011808009452L, 0x11C802242020E000L,
+			0x0124002210140002L, 0x4009008200420200L, 0x0000830202100202L, 0x9002042500420200L,
+			0x0A60200004480210L, 0x0402481020480080L, 0x8001100101004200L, 0x6240104004004080L,
+			0x1124848014002000L, 0x00180200204100A0L, 0x8020890844880800L, 0x0000802009040204L,
+			0x0410042041100280L, 0x0804022000020440L, 0x2418280400480024L, 0x0801080800420A00L,
+			0x4002248400020020L, 0x3020004102038084L, 0x84280110601C0200L, 0x2004004208088080L,
+			0x0008022220041210L, 0x00820E0120000440L, 0x0002002201020822L, 0x0000002019000804L,
+			0x0211204C10101100L, 0x0604808081001200L, 0x1010029204030041L, 0x1008090102110621L,
+			0x0002015002100C00L, 0x06002C040404400AL, 0xC030002201100011L, 0x4040008020884000L,
+			0x0248000903040100L, 0xC010092008008040L, 0x6008084108020494L, 0x28102182008E0042L,
+			0x0010210820842002L, 0x4080020111491002L, 0x0108100084008800L, 0x0022242100420221L,
+			0x10A8008110020210L, 0x400019122A900102L, 0x00800A1051080300L, 0x0420222088008080L
+	};
+	
+	static {
+		int square;
+		for (square = 0; square < 64; square++) {
+			KNIGHT_ATTACKS[square] = jumps(square, KNIGHT_JUMPS);
+			KING_ATTACKS[square] = jumps(square, KING_JUMPS);
+			PAWN_ATTACKS[EnumColors.WHITE.ordinal()][square] = jumps(square, WHITE_PAWN_JUMPS);
+			PAWN_ATTACKS[EnumColors.BLACK.ordinal()][square] = jumps(square, BLACK_PAWN_JUMPS);
+		}
+		ROOK_TABLE = initMagics(ROOK_DIRECTIONS, ROOK_MASKS, ROOK_MAGICS, ROOK_SHIFTS, ROOK_OFFSETS);
+		BISHOP_TABLE = initMagics(BISHOP_DIRECTIONS, BISHOP_MASKS, BISHOP_MAGICS, BISHOP_SHIFTS, BISHOP_OFFSETS);
+		initBetween(ROOK_DIRECTIONS);
+		initBetween(BISHOP_DIRECTIONS);
+	}
+	
+	// Convert a position (x, y) to the number of its bit
+	public static int square(int x, int y) {
+		return (y << 3) | x;
+	}
+	
+	public static int getX(int square) {
+		return square & 7;
+	}
+	
+	public static int getY(int square) {
+		return square >>> 3;
+	}
+	
+	public static long knightAttacks(int square) {
+		return KNIGHT_ATTACKS[square];
+	}
+	
+	public static long kingAttacks(int square) {
+		return KING_ATTACKS[square];
+	}
+	
+	// Squares attacked by a pawn of the specified color
+	public static long pawnAttacks(int square, EnumColors color) {
+		return PAWN_ATTACKS[color.ordinal()][square];
+	}
+	
+	// The occupancy of the board is reduced to the relevant squares and then
+	// the magic number turns it into the index of the precomputed attacks
+	public static long rookAttacks(int square, long occupied) {
+		int index = (int) (((occupied & ROOK_MASKS[square]) * ROOK_MAGICS[square]) >>> ROOK_SHIFTS[square]);
+		return ROOK_TABLE[ROOK_OFFSETS[square] + index];
+	}
+	
+	public static long bishopAttacks(int square, long occupied) {
+		int index = (int) (((occupied & BISHOP_MASKS[square]) * BISHOP_MAGICS[square]) >>> BISHOP_SHIFTS[square]);
+		return BISHOP_TABLE[BISHOP_OFFSETS[square] + index];
+	}
+	
+	public static long queenAttacks(int square, long occupied) {
+		return rookAttacks(square, occupied) | bishopAttacks(square, occupied);
+	}
+	
+	// Squares strictly between two squares on the same line (row, column or
+	// diagonal), it is empty if the squares are not aligned or are next to each other
+	public static long between(int from, int to) {
+		return BETWEEN[from][to];
+	}
+	
+	// Squares reached from a square with single jumps (knight, king and pawn)
+	private static long jumps(int square, int moves[][]) {
+		long attacks = 0;
+		int x = getX(square), y = getY(square);
+		for (int[] move : moves)
+			if (Board.positionInsideBoard(x + move[0], y + move[1]))
+				attacks |= 1L << square(x + move[0], y + move[1]);
+		return attacks;
+	}
+	
+	// Walk each ray saving the squares already passed as the squares
+	// between the origin and the current square
+	private static void initBetween(int directions[][]) {
+		int square, x, y;
+		long passed;
+		for (square = 0; square < 64; square++) {
+			for (int[] direction : directions) {
+				passed = 0;
+				x = getX(square) + direction[0];
+				y = getY(square) + direction[1];
+				while (Board.positionInsideBoard(x, y)) {
+					BETWEEN[square][square(x, y)] = passed;
+					passed |= 1L << square(x, y);
+					x += direction[0];
+					y += direction[1];
+				}
+			}
+		}
+	}
+	
+	// Walk the rays one square at a time, this is only used to fill the tables.
+	// If edges is false, the last square of each ray is not included, because
+	// a piece there never changes the attacks (this gives the relevant mask)
+	private static long slidingAttacks(int square, long occupied, int directions[][], boolean edges) {
+		long attacks = 0;
+		int x, y;
+		for (int[] direction : directions) {
+			x = getX(square) + direction[0];
+			y = getY(square) + direction[1];
+			while (Board.positionInsideBoard(x, y)) {
+				if (! edges && ! Board.positionInsideBoard(x + direction[0], y + direction[1]))
+					break;  // Last square of the ray
+				attacks |= 1L << square(x, y);
+				if ((occupied & (1L << square(x, y))) != 0)
+					break;  // There is a piece on the way
+				x += direction[0];
+				y += direction[1];
+			}
+		}
+		return attacks;
+	}
+	
+	// Fill the part of the table of each square, all occupancies of the
+	// relevant squares are enumerated and their attacks saved on the magic index
+	private static long[] initMagics(int directions[][], long masks[], long magics[], int shifts[], int offsets[]) {
+		int square, bits, total = 0, index;
+		long subset, attacks;
+		for (square = 0; square < 64; square++) {
+			masks[square] = slidingAttacks(square, 0, directions, false);
+			bits = Long.bitCount(masks[square]);
+			shifts[square] = 64 - bits;
+			offsets[square] = total;
+			total += 1 << bits;
+		}
+		long table[] = new long[total];
+		for (square = 0; square < 64; square++) {
+			subset = 0;
+			do {  // Enumerate all subsets of the mask
+				attacks = slidingAttacks(square, subset, directions, true);
+				index = offsets[square] + (int) ((subset * magics[square]) >>> shifts[square]);
+				if (table[index] != 0 && table[index] != attacks)
+					throw new IllegalStateException("Wrong magic number for square " + square);
+				table[index] = attacks;
+				subset = (subset - masks[square]) & masks[square];
+			} while (subset != 0);
+		}
+		return table;
+	}
+}
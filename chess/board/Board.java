@@ -1,84 +1,337 @@
 package chess.board;
+import java.util.Arrays;
 import chess.pieces.*;
 
 public class Board {
 	public static final byte LOW_LIMIT = 0, HIGH_LIMIT = 7;
-	private Piece board[][] = new Piece[8][8];
+	public static final int NO_SQUARE = -1;
+	// The castling rights are bits, one for each color and side
+	public static final int WHITE_KING_SIDE = 1, WHITE_QUEEN_SIDE = 2,
+			BLACK_KING_SIDE = 4, BLACK_QUEEN_SIDE = 8, ALL_CASTLING = 15;
+	static final int CASTLING_MASKS[] = new int[64];  // Rights kept after a move touches a square
+	private static final EnumPieces TYPES[] = EnumPieces.values();
+	private static final EnumColors COLORS[] = EnumColors.values();
 	// This is the virtual board for the game, here is where all logic happens,
 	// like moves, eaten pieces, check valid moves and all rules of chess
+	// Each square saves the code of its piece (see Piece.getCode), 0 is empty,
+	// the pieces themselves are shared and do not save anything of the game
+	private byte board[] = new byte[64];  // [square]
+	// The pieces are also kept as bitboards, one for each type and color,
+	// so attacks are found with table lookups instead of walking the board
+	private long bitboards[][] = new long[2][EnumPieces.values().length];  // [color][type]
+	private long occupied[] = new long[2];  // [color]
+	// The squares of the live pieces of each color are also kept on lists, so the
+	// pieces can be visited without looking at the empty squares. A removed piece is
+	// replaced by the last piece of its list, listIndex saves where each square is listed
+	private byte pieceSquares[][] = new byte[2][64];  // [color][index]
+	private int pieceCounts[] = new int[2];
+	private byte listIndex[] = new byte[64];
+	private int kingSquares[] = {NO_SQUARE, NO_SQUARE};  // The kings are searched very often
+	// The state of the game that is not seen on the squares: castlings that
+	// can still be done and the square jumped by a pawn on the last move
+	private int castlingRights = 0;
+	private int enPassant = NO_SQUARE;
+	private EnumColors turn = EnumColors.WHITE;  // The color that moves
+	// The key of the position (see Zobrist) is updated with each change of the
+	// board. The keys of the previous positions are saved to find repetitions,
+	// only back to the last eat or pawn move, because nothing before can repeat
+	private long key = 0;
+	private long keyHistory[] = new long[128];
+	private int historyCount = 0;
+	private int halfmoveClock = 0;  // Moves since the last eat or pawn move
+	// The values of the pieces on their squares (see PieceSquareTables) are
+	// added as the pieces are put and removed, white is positive
+	private int middlegameScore = 0, endgameScore = 0, phase = 0;
+	private UndoRecord undoStack[] = new UndoRecord[16];  // Moves that can be undone
+	private int undoCount = 0;
+	private UndoRecord scratch = new UndoRecord();  // For moves that are not undone
+	
+	static {
+		Arrays.fill(CASTLING_MASKS, ALL_CASTLING);
+		// A move from or to the square of a rook or a king removes its castlings
+		CASTLING_MASKS[Bitboards.square(LOW_LIMIT, LOW_LIMIT)] &= ~WHITE_QUEEN_SIDE;
+		CASTLING_MASKS[Bitboards.square(HIGH_LIMIT, LOW_LIMIT)] &= ~WHITE_KING_SIDE;
+		CASTLING_MASKS[Bitboards.square(HIGH_LIMIT - 3, LOW_LIMIT)] &= ~(WHITE_KING_SIDE | WHITE_QUEEN_SIDE);
+		CASTLING_MASKS[Bitboards.square(LOW_LIMIT, HIGH_LIMIT)] &= ~BLACK_QUEEN_SIDE;
+		CASTLING_MASKS[Bitboards.square(HIGH_LIMIT, HIGH_LIMIT)] &= ~BLACK_KING_SIDE;
+		CASTLING_MASKS[Bitboards.square(HIGH_LIMIT - 3, HIGH_LIMIT)] &= ~(BLACK_KING_SIDE | BLACK_QUEEN_SIDE);
+	}
 	
 	// Remove all images on board
 	public void clear() {
-		int x, y;
-		for (y = 0; y < 8; y++)
-			for (x = 0; x < 8; x++)
-				board[y][x] = null;
+		int color;
+		Arrays.fill(board, (byte) 0);
+		for (color = 0; color < 2; color++) {
+			occupied[color] = 0;
+			Arrays.fill(bitboards[color], 0);
+			pieceCounts[color] = 0;
+			kingSquares[color] = NO_SQUARE;
+		}
+		castlingRights = 0;
+		enPassant = NO_SQUARE;
+		turn = EnumColors.WHITE;
+		key = 0;  // There is nothing on the board
+		middlegameScore = endgameScore = phase = 0;
+		historyCount = 0;
+		halfmoveClock = 0;
+		undoCount = 0;  // The saved moves are not valid anymore
 	}
 	
 	// Set all pieces on board to start the game
 	public void setDefaultBoard() {
-		int i;
+		int i, y;
 		EnumColors colors[] = {EnumColors.WHITE, EnumColors.BLACK};
 		clear();
 		for (EnumColors color : colors) {
+			y = color == EnumColors.WHITE ? LOW_LIMIT : HIGH_LIMIT;
 			for (i = 0; i < 8; i++)
-				addPiece(new Pawn(LOW_LIMIT + i, color));
-			addPiece(new Rook(LOW_LIMIT, color));
-			addPiece(new Rook(HIGH_LIMIT, color));
-			addPiece(new Knight(LOW_LIMIT + 1, color));
-			addPiece(new Knight(HIGH_LIMIT - 1, color));
-			addPiece(new Bishop(LOW_LIMIT + 2, color));
-			addPiece(new Bishop(HIGH_LIMIT - 2, color));
+				addPiece(Piece.get(EnumPieces.PAWN, color), LOW_LIMIT + i,
+						color == EnumColors.WHITE ? LOW_LIMIT + 1 : HIGH_LIMIT - 1);
+			addPiece(Piece.get(EnumPieces.ROOK, color), LOW_LIMIT, y);
+			addPiece(Piece.get(EnumPieces.ROOK, color), HIGH_LIMIT, y);
+			addPiece(Piece.get(EnumPieces.KNIGHT, color), LOW_LIMIT + 1, y);
+			addPiece(Piece.get(EnumPieces.KNIGHT, color), HIGH_LIMIT - 1, y);
+			addPiece(Piece.get(EnumPieces.BISHOP, color), LOW_LIMIT + 2, y);
+			addPiece(Piece.get(EnumPieces.BISHOP, color), HIGH_LIMIT - 2, y);
+			addPiece(Piece.get(EnumPieces.QUEEN, color), LOW_LIMIT + 3, y);
+			addPiece(Piece.get(EnumPieces.KING, color), HIGH_LIMIT - 3, y);
 		}
-		addPiece(new Queen(LOW_LIMIT + 3, EnumColors.WHITE));
-		addPiece(new King(HIGH_LIMIT - 3, EnumColors.WHITE));
-		addPiece(new Queen(LOW_LIMIT + 3, EnumColors.BLACK));
-		addPiece(new King(HIGH_LIMIT - 3, EnumColors.BLACK));
+		setCastlingRights(ALL_CASTLING);
 	}
 	
-	// Add a piece to the board, the piece already contains the position
-	public void addPiece(Piece piece) {
-		if (positionInsideBoard(piece.getX(), piece.getY()))
-			board[piece.getY()][piece.getX()] = piece;
+	// Put a piece on the position (x, y), it replaces the piece that was there
+	public void addPiece(Piece piece, int x, int y) {
+		if (positionInsideBoard(x, y)) {
+			clearBits(Bitboards.square(x, y));
+			setBits(Bitboards.square(x, y), piece.getCode());
+		}
 	}
 	
 	// Get a piece of the board given its position
 	public Piece getPiece(int x, int y) {
 		Piece piece = null;
 		if (positionInsideBoard(x, y))
-			piece = board[y][x];
+			piece = Piece.fromCode(board[Bitboards.square(x, y)]);
 		return piece;
 	}
 	
-	// Remove a piece of the board
-	public void removePiece(Piece piece) {
-		if (positionInsideBoard(piece.getX(), piece.getY()))
-			board[piece.getY()][piece.getX()] = null;
+	// Get a piece of the board given its square (y * 8 + x)
+	public Piece getPiece(int square) {
+		return Piece.fromCode(board[square]);
 	}
 	
-	// This function searches the king of the specified color and returns it
-	public Piece getKing(EnumColors color) {
-		int x, y;
-		Piece piece = null;
-		for (y = 0; y < 8; y++) {
-			for (x = 0; x < 8; x++) {
-				piece = board[y][x];
-				if (piece == null)
-					continue;
-				if (piece.getType() == EnumPieces.KING && piece.getColor() == color)
-					return piece;
-			}
-		}
-		return piece;
+	// Remove the piece on the position (x, y)
+	public void removePiece(int x, int y) {
+		if (positionInsideBoard(x, y))
+			clearBits(Bitboards.square(x, y));
+	}
+	
+	// Put a piece on an empty square, on its bitboards and on its list
+	private void setBits(int square, int code) {
+		int color = code >> 3;
+		board[square] = (byte) code;
+		key ^= Zobrist.piece(code, square);
+		middlegameScore += PieceSquareTables.middlegame(code, square);
+		endgameScore += PieceSquareTables.endgame(code, square);
+		phase += PieceSquareTables.phase(code);
+		bitboards[color][code & 7] |= 1L << square;
+		occupied[color] |= 1L << square;
+		listIndex[square] = (byte) pieceCounts[color];
+		pieceSquares[color][pieceCounts[color]++] = (byte) square;
+		if (TYPES[code & 7] == EnumPieces.KING)
+			kingSquares[color] = square;
+	}
+	
+	// Remove the piece that is on the square and its
+	// place on the list is taken by the last piece of the list
+	private void clearBits(int square) {
+		int code = board[square], color, last;
+		if (code == 0)
+			return;  // Empty square, there are no bits
+		color = code >> 3;
+		board[square] = 0;
+		key ^= Zobrist.piece(code, square);
+		middlegameScore -= PieceSquareTables.middlegame(code, square);
+		endgameScore -= PieceSquareTables.endgame(code, square);
+		phase -= PieceSquareTables.phase(code);
+		bitboards[color][code & 7] &= ~(1L << square);
+		occupied[color] &= ~(1L << square);
+		last = pieceSquares[color][--pieceCounts[color]];
+		pieceSquares[color][listIndex[square]] = (byte) last;
+		listIndex[last] = listIndex[square];
+		if (kingSquares[color] == square)
+			kingSquares[color] = NO_SQUARE;
+	}
+	
+	// Number of pieces of a color on the board
+	public int getPieceCount(EnumColors color) {
+		return pieceCounts[color.ordinal()];
+	}
+	
+	// Get the square of a piece of a color given its place on the list, the order
+	// changes when the pieces are moved, so the board should not change on a loop
+	public int getPieceSquare(EnumColors color, int index) {
+		return pieceSquares[color.ordinal()][index];
+	}
+	
+	// Get the squares of all pieces of a type and color
+	public long getBitboard(EnumPieces type, EnumColors color) {
+		return bitboards[color.ordinal()][type.ordinal()];
+	}
+	
+	// Get the squares occupied by the pieces of a color
+	public long getOccupied(EnumColors color) {
+		return occupied[color.ordinal()];
+	}
+	
+	// Get the squares occupied by all pieces
+	public long getOccupied() {
+		return occupied[0] | occupied[1];
+	}
+	
+	// This function checks if a square is attacked by any piece of the specified color.
+	// Each attack is looked from the square itself: if a knight on this square
+	// would reach an enemy knight, that knight also reaches this square
+	public boolean squareAttacked(int x, int y, EnumColors color) {
+		int square = Bitboards.square(x, y), c = color.ordinal();
+		long all = getOccupied();
+		EnumColors other = color == EnumColors.WHITE ? EnumColors.BLACK : EnumColors.WHITE;
+		long queens = bitboards[c][EnumPieces.QUEEN.ordinal()];
+		if ((Bitboards.pawnAttacks(square, other) & bitboards[c][EnumPieces.PAWN.ordinal()]) != 0)
+			return true;
+		if ((Bitboards.knightAttacks(square) & bitboards[c][EnumPieces.KNIGHT.ordinal()]) != 0)
+			return true;
+		if ((Bitboards.kingAttacks(square) & bitboards[c][EnumPieces.KING.ordinal()]) != 0)
+			return true;
+		if ((Bitboards.rookAttacks(square, all) & (bitboards[c][EnumPieces.ROOK.ordinal()] | queens)) != 0)
+			return true;
+		return (Bitboards.bishopAttacks(square, all) & (bitboards[c][EnumPieces.BISHOP.ordinal()] | queens)) != 0;
+	}
+	
+	// This function returns the square of the king of the specified color,
+	// NO_SQUARE if there is no king of this color
+	public int getKingSquare(EnumColors color) {
+		return kingSquares[color.ordinal()];
+	}
+	
+	// The castlings that can still be done, a bit for each color and side
+	public int getCastlingRights() {
+		return castlingRights;
+	}
+	
+	public void setCastlingRights(int castlingRights) {
+		key ^= Zobrist.castling(this.castlingRights);
+		this.castlingRights = castlingRights & ALL_CASTLING;
+		key ^= Zobrist.castling(this.castlingRights);
+	}
+	
+	// Check if the king and the rook of a side have not been moved
+	public boolean hasCastlingRight(EnumColors color, boolean kingSide) {
+		int right = kingSide ? WHITE_KING_SIDE : WHITE_QUEEN_SIDE;
+		return (castlingRights & (right << (2 * color.ordinal()))) != 0;
+	}
+	
+	// The square jumped by a pawn on the last move, a pawn of the other color
+	// can eat by pass going to this square. NO_SQUARE if the last move was other
+	public int getEnPassant() {
+		return enPassant;
+	}
+	
+	public void setEnPassant(int square) {
+		key ^= Zobrist.enPassant(enPassant) ^ Zobrist.enPassant(square);
+		enPassant = square;
+	}
+	
+	public EnumColors getTurn() {
+		return turn;
+	}
+	
+	public void setTurn(EnumColors color) {
+		key ^= Zobrist.turn(turn) ^ Zobrist.turn(color);
+		turn = color;
+	}
+	
+	// The key of the position, the same positions have the same key
+	public long getKey() {
+		return key;
+	}
+	
+	// The values of all pieces on their squares for the middlegame and
+	// the endgame, positive is better for white (see PieceSquareTables)
+	public int getMiddlegameScore() {
+		return middlegameScore;
+	}
+	
+	public int getEndgameScore() {
+		return endgameScore;
+	}
+	
+	// PieceSquareTables.MAX_PHASE with all pieces, 0 with only kings and pawns,
+	// it can be more after a coronation
+	public int getPhase() {
+		return phase;
+	}
+	
+	// Moves since the last eat or pawn move
+	public int getHalfmoveClock() {
+		return halfmoveClock;
+	}
+	
+	public void setHalfmoveClock(int halfmoveClock) {
+		this.halfmoveClock = halfmoveClock;
+	}
+	
+	// Number of times that the current position was on the board before, with
+	// the same color to move. Only the positions after the last eat or pawn
+	// move are compared, and only those of the same color to move
+	public int getRepetitions() {
+		int i, repetitions = 0, first = Math.max(0, historyCount - halfmoveClock);
+		for (i = historyCount - 2; i >= first; i -= 2)
+			if (keyHistory[i] == key)
+				repetitions++;
+		return repetitions;
+	}
+	
+	// The same position for the third time is a tied game
+	public boolean threefoldRepetition() {
+		return getRepetitions() >= 2;
+	}
+	
+	// The keys of the positions before the current one, the oldest first, for
+	// a board that was not reached with its moves (see Snapshot.toBoard)
+	void setHistory(long keys[], int count) {
+		keyHistory = Arrays.copyOf(keys, Math.max(keyHistory.length, count * 2));
+		historyCount = count;
+	}
+	
+	// 50 moves of each color without eats or pawn moves is a tied game
+	public boolean fiftyMovesRule() {
+		return halfmoveClock >= 100;
 	}
 	
 	// This function is for clone the board, it is very useful to get valid moves of a piece
 	public Board cloneBoard() {
-		int x, y;
+		int color;
 		Board copy = new Board();
-		for (y = 0; y < 8; y++)
-			for (x = 0; x < 8; x++)
-				copy.board[y][x] = board[y][x] == null ? null : board[y][x].clone();
+		System.arraycopy(board, 0, copy.board, 0, 64);
+		System.arraycopy(listIndex, 0, copy.listIndex, 0, 64);
+		for (color = 0; color < 2; color++) {
+			System.arraycopy(bitboards[color], 0, copy.bitboards[color], 0, bitboards[color].length);
+			System.arraycopy(pieceSquares[color], 0, copy.pieceSquares[color], 0, pieceCounts[color]);
+			copy.occupied[color] = occupied[color];
+			copy.pieceCounts[color] = pieceCounts[color];
+			copy.kingSquares[color] = kingSquares[color];
+		}
+		copy.castlingRights = castlingRights;
+		copy.enPassant = enPassant;
+		copy.turn = turn;
+		copy.key = key;
+		copy.keyHistory = Arrays.copyOf(keyHistory, keyHistory.length);
+		copy.historyCount = historyCount;
+		copy.halfmoveClock = halfmoveClock;
+		copy.middlegameScore = middlegameScore;
+		copy.endgameScore = endgameScore;
+		copy.phase = phase;
 		return copy;
 	}
 	
@@ -92,78 +345,145 @@ public class Board {
 	// Other pieces could be changed in cases
 	// like pawn eaten by pass, castling and normal eaten pieces
 	public void movePiece(int oldX, int oldY, int newX, int newY) {
-		int x, y;
-		Piece toChange, piece;
-		toChange = getPiece(oldX, oldY);  // Piece to move
+		scratch.clear();  // This move will not be undone
+		doMove(oldX, oldY, newX, newY, EnumPieces.NONE, scratch);
+	}
+	
+	// Move a piece with a move generated by MoveGenerator (see Move),
+	// the move also contains the piece chosen for a coronation
+	public void movePiece(int move) {
+		scratch.clear();
+		doMove(Bitboards.getX(Move.getFrom(move)), Bitboards.getY(Move.getFrom(move)),
+				Bitboards.getX(Move.getTo(move)), Bitboards.getY(Move.getTo(move)),
+				Move.getPromotion(move), scratch);
+	}
+	
+	// This function moves a piece like movePiece, but the move is saved
+	// to be undone later with unmakeMove. The records are reused, so
+	// checking a move on the board does not allocate memory
+	public void makeMove(int oldX, int oldY, int newX, int newY) {
+		doMove(oldX, oldY, newX, newY, EnumPieces.NONE, nextRecord());
+		undoCount++;
+	}
+	
+	public void makeMove(int move) {
+		doMove(Bitboards.getX(Move.getFrom(move)), Bitboards.getY(Move.getFrom(move)),
+				Bitboards.getX(Move.getTo(move)), Bitboards.getY(Move.getTo(move)),
+				Move.getPromotion(move), nextRecord());
+		undoCount++;
+	}
+	
+	// Get a clean record on the top of the stack
+	private UndoRecord nextRecord() {
+		if (undoCount == undoStack.length)  // All records are in use
+			undoStack = Arrays.copyOf(undoStack, undoStack.length * 2);
+		if (undoStack[undoCount] == null)
+			undoStack[undoCount] = new UndoRecord();
+		undoStack[undoCount].clear();
+		return undoStack[undoCount];
+	}
+	
+	// Undo the last move made with makeMove, the pieces and
+	// the state of the game return to the state before that move
+	public void unmakeMove() {
+		UndoRecord record;
+		int rook;
+		if (undoCount == 0)
+			return;  // There are no moves to undo
+		record = undoStack[--undoCount];
+		if (! record.done)
+			return;  // The move did not change the board
+		clearBits(record.to);  // This also removes a crowned piece
+		if (record.rookFrom != NO_SQUARE) {  // Return the rook of the castling
+			rook = board[record.rookTo];
+			clearBits(record.rookTo);
+			setBits(record.rookFrom, rook);
+		}
+		setBits(record.from, record.moved);
+		if (record.captured != 0)
+			setBits(record.to, record.captured);
+		if (record.eatenSquare != NO_SQUARE)
+			setBits(record.eatenSquare, record.eaten);
+		castlingRights = record.castlingRights;
+		enPassant = record.enPassant;
+		halfmoveClock = record.halfmoveClock;
+		turn = turn == EnumColors.WHITE ? EnumColors.BLACK : EnumColors.WHITE;
+		key = keyHistory[--historyCount];  // The key before the move
+	}
+	
+	private void doMove(int oldX, int oldY, int newX, int newY, EnumPieces promotion, UndoRecord record) {
+		int from, to, code, eatenSquare, rookFrom, rookTo;
+		EnumPieces type;
 		if (! positionInsideBoard(oldX, oldY))  // Do all necessary validations
 			return;
 		if (! positionInsideBoard(newX, newY))
 			return;
 		if (oldX == newX && oldY == newY)
 			return;
-		if (toChange == null)
+		from = Bitboards.square(oldX, oldY);
+		to = Bitboards.square(newX, newY);
+		code = board[from];  // Piece to move
+		if (code == 0)
 			return;
-		removePiece(toChange);  // Remove the piece of the current position
-		toChange.setPosition(newX, newY);  // Set its new position
-		addPiece(toChange);  // Put this piece on the new position on board
-		// Update a pawns' attribute
-		for (y = LOW_LIMIT; y <= HIGH_LIMIT; y++) {
-			for (x = LOW_LIMIT; x <= HIGH_LIMIT; x++) {
-				piece = getPiece(x, y);
-				if (piece == null)
-					continue;
-				// Eat by pass can only be done immediately after the initial move
-				if (piece.getType() == EnumPieces.PAWN)
-					piece.addMoveSinceDB();
+		type = TYPES[code & 7];
+		record.done = true;
+		record.from = from;
+		record.to = to;
+		record.moved = code;
+		record.captured = board[to];
+		record.castlingRights = castlingRights;
+		record.enPassant = enPassant;
+		record.halfmoveClock = halfmoveClock;
+		if (historyCount == keyHistory.length)
+			keyHistory = Arrays.copyOf(keyHistory, keyHistory.length * 2);
+		keyHistory[historyCount++] = key;
+		// The rights and the square are removed from the key and added again after the move
+		key ^= Zobrist.castling(castlingRights) ^ Zobrist.enPassant(enPassant);
+		halfmoveClock = type == EnumPieces.PAWN || board[to] != 0 ? 0 : halfmoveClock + 1;
+		// A pawn that goes on diagonal to the jumped square eats by pass,
+		// the eaten pawn is next to the moved pawn
+		if (type == EnumPieces.PAWN && to == enPassant && oldX != newX) {
+			eatenSquare = Bitboards.square(newX, oldY);
+			if (board[eatenSquare] == Piece.getCode(EnumPieces.PAWN, Piece.fromCode(code).getColor() == EnumColors.WHITE
+					? EnumColors.BLACK : EnumColors.WHITE)) {
+				record.eatenSquare = eatenSquare;
+				record.eaten = board[eatenSquare];
+				clearBits(eatenSquare);  // A pawn was eaten by pass, remove it
+			}
+		}
+		clearBits(to);
+		clearBits(from);
+		setBits(to, code);  // Put this piece on the new position on board
+		// Eat by pass can only be done immediately after the initial move,
+		// the square is saved only if there is a pawn that can eat
+		enPassant = NO_SQUARE;
+		if (type == EnumPieces.PAWN && Math.abs(oldY - newY) == 2
+				&& (Bitboards.pawnAttacks(Bitboards.square(oldX, (oldY + newY) / 2), COLORS[code >> 3])
+				& bitboards[1 - (code >> 3)][EnumPieces.PAWN.ordinal()]) != 0)
+			enPassant = Bitboards.square(oldX, (oldY + newY) / 2);
+		// If the king moved 2 columns it was a castling, the rook
+		// of that side goes to the other side of the king
+		if (type == EnumPieces.KING && Math.abs(oldX - newX) == 2 && oldY == newY) {
+			rookFrom = Bitboards.square(newX < HIGH_LIMIT/2 ? LOW_LIMIT : HIGH_LIMIT, oldY);
+			rookTo = Bitboards.square(newX < HIGH_LIMIT/2 ? newX + 1 : newX - 1, oldY);
+			if (board[rookFrom] != 0) {  // Rook should not be missing, but this is for safe code
+				record.rookFrom = rookFrom;
+				record.rookTo = rookTo;
+				setBits(rookTo, board[rookFrom]);
+				clearBits(rookFrom);
 			}
 		}
-		if (toChange.getType() == EnumPieces.KING)
-			checkCastling(oldX, oldY, newX, newY);  // Check special move
-		else if (toChange.getType() == EnumPieces.PAWN)
-			checkEatenByPass(oldX, oldY, newX, newY);  // Check special move
-		else if (toChange.getType() == EnumPieces.ROOK)
-			toChange.setHasBeenMoved();  // This is useful for castling
-	}
-	
-	// This function implements a way to move the rook to its correct
-	// position if the move made (to the king) was a castling
-	private void checkCastling(int oldX, int oldY, int newX, int newY) {
-		int oldXRook, dxRook;
-		Piece rook;
-		getPiece(newX, newY).setHasBeenMoved();  // King has been moved
-		if (Math.abs(oldX - newX) == 1 || Math.abs(oldY - newY) == 1)
-			return;  // This is a traditional move
-		// Find the rook to complete the castling
-		oldXRook = newX < HIGH_LIMIT/2 ? LOW_LIMIT : HIGH_LIMIT;
-		dxRook = newX < HIGH_LIMIT/2 ? 1 : -1;
-		rook = getPiece(oldXRook, oldY);  // Rook implicated on castling
-		if (rook == null)
-			return;  // Rook should not be null, but this is for safe code
-		removePiece(rook);
-		rook.setPosition(newX + dxRook, newY);
-		addPiece(rook);
-	}
-	
-	// This function implements a way to delete a pawn on the board
-	// if it was eaten by pass, also updates other important
-	// attributes of pawns
-	private void checkEatenByPass(int oldX, int oldY, int newX, int newY) {
-		Piece pawn, next;
-		pawn = getPiece(newX, newY);  // This the pawn moved
-		pawn.setHasBeenMoved();
-		if (Math.abs(oldY - newY) == 2) {
-			pawn.setDoubleBox();
-			return;  // This pawn was moved 2 boxes its first move
+		if (type == EnumPieces.KING)  // The king has been moved, no more castlings
+			castlingRights &= ~((WHITE_KING_SIDE | WHITE_QUEEN_SIDE) << (2 * (code >> 3)));
+		castlingRights &= CASTLING_MASKS[from] & CASTLING_MASKS[to];
+		if (type == EnumPieces.PAWN && promotion != EnumPieces.NONE && promotion != EnumPieces.PAWN
+				&& promotion != EnumPieces.KING) {
+			clearBits(to);  // The new piece replaces the pawn
+			setBits(to, Piece.getCode(promotion, Piece.fromCode(code).getColor()));
 		}
-		if (newX - oldX == 0)
-			return;  // This pawn made a traditional front move
-		// The move was on diagonal
-		next = getPiece(newX, oldY);  // Get the piece next to the pawn moved
-		if (next == null)
-			return;  // It is an empty square
-		if (next.getType() == EnumPieces.PAWN
-				&& next.getMovesSinceDB() == 1
-				&& next.getDoubleBox())
-			removePiece(next);  // A pawn was eaten by pass, remove it
+		key ^= Zobrist.castling(castlingRights) ^ Zobrist.enPassant(enPassant);
+		key ^= Zobrist.turn(turn);
+		turn = turn == EnumColors.WHITE ? EnumColors.BLACK : EnumColors.WHITE;
+		key ^= Zobrist.turn(turn);
 	}
 }
@@ -0,0 +1,197 @@
+package chess.board;
+import chess.pieces.*;
+
+public class Fen {
+	// A FEN is a line of text with a position: the pieces row by row from the
+	// black side, the color that moves, the castlings, the en passant square
+	// and the move counters, for example the initial position is START
+	public static final String START = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w KQkq - 0 1";
+	private static final String PIECE_LETTERS = " prnbqk";  // By the order of EnumPieces
+	private static final String CASTLING_LETTERS = "KQkq";  // By the bits of the castling rights
+	private static final EnumPieces TYPES[] = EnumPieces.values();
+	private static final long FIRST_ROW = 0xFFL;  // Squares a1 to h1, the last row is a8 to h8
+	
+	// Put the position of the FEN on the board and return the color that moves.
+	// The text is read once without splitting it, files with millions of
+	// positions are loaded this way. The move number is not used.
+	// The castlings without their king and rook, and an en passant square
+	// where no pawn can eat, are removed, like Board does after a move, so a
+	// position has the same key however it was reached. A position where the
+	// color that does not move is in check is not valid, also the pieces
+	// that no game can have, like two kings of a color or 17 pieces
+	public static EnumColors load(Board board, String fen) {
+		int i, end, x = Board.LOW_LIMIT, y = Board.HIGH_LIMIT, type, rights = 0, square;
+		char c, letter;
+		EnumColors color, enemy;
+		board.clear();
+		i = skipSpaces(fen, 0);
+		end = tokenEnd(fen, i);
+		for (; i < end; i++) {  // The pieces, row 8 first
+			c = fen.charAt(i);
+			if (c == '/') {
+				if (x != Board.HIGH_LIMIT + 1 || y == Board.LOW_LIMIT)
+					throw new IllegalArgumentException("A FEN must have 8 rows of 8 squares: " + fen);
+				x = Board.LOW_LIMIT;
+				y--;
+				continue;
+			}
+			if (c >= '1' && c <= '8')  // Empty squares
+				x += c - '0';
+			else {
+				letter = Character.toLowerCase(c);
+				type = PIECE_LETTERS.indexOf(letter);
+				if (type < 1 || ! Board.positionInsideBoard(x, y))
+					throw new IllegalArgumentException("Wrong row on FEN: " + fen);
+				color = c == letter ? EnumColors.BLACK : EnumColors.WHITE;
+				board.addPiece(Piece.get(TYPES[type], color), x, y);
+				x++;
+			}
+			if (x > Board.HIGH_LIMIT + 1)
+				throw new IllegalArgumentException("Wrong row on FEN: " + fen);
+		}
+		if (x != Board.HIGH_LIMIT + 1 || y != Board.LOW_LIMIT)
+			throw new IllegalArgumentException("A FEN must have 8 rows of 8 squares: " + fen);
+		if (board.getKingSquare(EnumColors.WHITE) == Board.NO_SQUARE
+				|| board.getKingSquare(EnumColors.BLACK) == Board.NO_SQUARE)
+			throw new IllegalArgumentException("Both kings must be on the board: " + fen);
+		for (EnumColors side : EnumColors.values()) {  // Pieces that no game can have
+			if (Long.bitCount(board.getBitboard(EnumPieces.KING, side)) > 1)
+				throw new IllegalArgumentException("Only one king of each color: " + fen);
+			if (Long.bitCount(board.getOccupied(side)) > 16 || Long.bitCount(board.getBitboard(EnumPieces.PAWN, side)) > 8)
+				throw new IllegalArgumentException("Too many pieces of one color: " + fen);
+			if ((board.getBitboard(EnumPieces.PAWN, side) & (FIRST_ROW | FIRST_ROW << 56)) != 0)
+				throw new IllegalArgumentException("A pawn can not be on the first or last row: " + fen);
+		}
+		i = skipSpaces(fen, end);
+		end = tokenEnd(fen, i);
+		if (end - i != 1)
+			throw new IllegalArgumentException("Wrong color on FEN: " + fen);
+		if (fen.charAt(i) == 'w')
+			board.setTurn(EnumColors.WHITE);
+		else if (fen.charAt(i) == 'b')
+			board.setTurn(EnumColors.BLACK);
+		else
+			throw new IllegalArgumentException("Wrong color on FEN: " + fen);
+		i = skipSpaces(fen, end);
+		end = tokenEnd(fen, i);
+		if (end > i && fen.charAt(i) != '-') {  // The castlings
+			for (; i < end; i++) {
+				type = CASTLING_LETTERS.indexOf(fen.charAt(i));
+				if (type < 0)
+					throw new IllegalArgumentException("Wrong castling on FEN: " + fen);
+				rights |= 1 << type;
+			}
+		}
+		board.setCastlingRights(rights & possibleCastlings(board));
+		enemy = board.getTurn() == EnumColors.WHITE ? EnumColors.BLACK : EnumColors.WHITE;
+		i = skipSpaces(fen, end);
+		end = tokenEnd(fen, i);
+		if (end > i && fen.charAt(i) != '-') {
+			square = parseSquare(fen.substring(i, end));
+			if (Bitboards.getY(square) != (enemy == EnumColors.WHITE ? 2 : 5))
+				throw new IllegalArgumentException("Wrong en passant square on FEN: " + fen);
+			// The enemy pawn jumped over the square, and a pawn can eat it
+			if (board.getPiece(enemy == EnumColors.WHITE ? square + 8 : square - 8) == Piece.get(EnumPieces.PAWN, enemy)
+					&& (Bitboards.pawnAttacks(square, enemy) & board.getBitboard(EnumPieces.PAWN, board.getTurn())) != 0)
+				board.setEnPassant(square);
+		}
+		square = board.getKingSquare(enemy);
+		if (board.squareAttacked(Bitboards.getX(square), Bitboards.getY(square), board.getTurn()))
+			throw new IllegalArgumentException("The color that does not move is in check: " + fen);
+		i = skipSpaces(fen, end);
+		end = tokenEnd(fen, i);
+		if (end > i)
+			board.setHalfmoveClock(parseNumber(fen, i, end));
+		return board.getTurn();
+	}
+	
+	// Write the position of the board as a FEN. The board does not count
+	// the moves of the game, so the move number is given
+	public static String toFen(Board board, int moveNumber) {
+		StringBuilder fen = new StringBuilder(90);
+		int x, y, empty, i, rights = board.getCastlingRights();
+		char letter;
+		Piece piece;
+		for (y = Board.HIGH_LIMIT; y >= Board.LOW_LIMIT; y--) {
+			empty = 0;
+			for (x = Board.LOW_LIMIT; x <= Board.HIGH_LIMIT; x++) {
+				piece = board.getPiece(x, y);
+				if (piece == null) {
+					empty++;
+					continue;
+				}
+				if (empty > 0)
+					fen.append((char) ('0' + empty));
+				empty = 0;
+				letter = PIECE_LETTERS.charAt(piece.getType().ordinal());
+				fen.append(piece.getColor() == EnumColors.WHITE ? Character.toUpperCase(letter) : letter);
+			}
+			if (empty > 0)
+				fen.append((char) ('0' + empty));
+			if (y > Board.LOW_LIMIT)
+				fen.append('/');
+		}
+		fen.append(board.getTurn() == EnumColors.WHITE ? " w " : " b ");
+		if (rights == 0)
+			fen.append('-');
+		for (i = 0; i < CASTLING_LETTERS.length(); i++) {
+			if ((rights & (1 << i)) != 0)
+				fen.append(CASTLING_LETTERS.charAt(i));
+		}
+		fen.append(' ');
+		fen.append(board.getEnPassant() == Board.NO_SQUARE ? "-" : Move.squareName(board.getEnPassant()));
+		fen.append(' ').append(board.getHalfmoveClock());
+		fen.append(' ').append(moveNumber);
+		return fen.toString();
+	}
+	
+	public static String toFen(Board board) {
+		return toFen(board, 1);
+	}
+	
+	// The castlings whose king and rook are still on their first squares
+	private static int possibleCastlings(Board board) {
+		int rights = 0, y;
+		for (EnumColors color : EnumColors.values()) {
+			y = color == EnumColors.WHITE ? Board.LOW_LIMIT : Board.HIGH_LIMIT;
+			if (board.getPiece(Board.HIGH_LIMIT - 3, y) != Piece.get(EnumPieces.KING, color))
+				continue;
+			if (board.getPiece(Board.HIGH_LIMIT, y) == Piece.get(EnumPieces.ROOK, color))
+				rights |= Board.WHITE_KING_SIDE << (2 * color.ordinal());
+			if (board.getPiece(Board.LOW_LIMIT, y) == Piece.get(EnumPieces.ROOK, color))
+				rights |= Board.WHITE_QUEEN_SIDE << (2 * color.ordinal());
+		}
+		return rights;
+	}
+	
+	// The square of a name like "e4"
+	public static int parseSquare(String name) {
+		if (name.length() != 2 || name.charAt(0) < 'a' || name.charAt(0) > 'h'
+				|| name.charAt(1) < '1' || name.charAt(1) > '8')
+			throw new IllegalArgumentException("Wrong square: " + name);
+		return Bitboards.square(name.charAt(0) - 'a', name.charAt(1) - '1');
+	}
+	
+	private static int parseNumber(String fen, int start, int end) {
+		int i, number = 0;
+		for (i = start; i < end; i++) {
+			if (fen.charAt(i) < '0' || fen.charAt(i) > '9' || number > 100000)
+				throw new IllegalArgumentException("Wrong number on FEN: " + fen);
+			number = number * 10 + fen.charAt(i) - '0';
+		}
+		return number;
+	}
+	
+	private static int skipSpaces(String fen, int i) {
+		while (i < fen.length() && fen.charAt(i) <= ' ')
+			i++;
+		return i;
+	}
+	
+	// The end of the field that starts on i
+	private static int tokenEnd(String fen, int i) {
+		while (i < fen.length() && fen.charAt(i) > ' ')
+			i++;
+		return i;
+	}
+}
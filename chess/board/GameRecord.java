@@ -0,0 +1,86 @@
+package chess.board;
+import java.util.Arrays;
+
+public class GameRecord {
+	// The moves of a game on 16 bits each (see Move.compact), the result and
+	// the initial position, this is the history of the game on the window and
+	// the games saved on files (see GameRecordFile). The complete moves are
+	// found again when they are played on a board from the initial position
+	public static final int UNKNOWN = 0, WHITE_WINS = 1, BLACK_WINS = 2, DRAW = 3;  // Results
+	private short moves[];
+	private int size = 0;
+	private int result = UNKNOWN;
+	private String fen = null;  // null for the initial position of the game
+	
+	public GameRecord() {
+		this(128);
+	}
+	
+	public GameRecord(int capacity) {
+		moves = new short[Math.max(capacity, 1)];
+	}
+	
+	public void add(int move) {
+		if (size == moves.length)
+			moves = Arrays.copyOf(moves, moves.length * 2);
+		moves[size++] = Move.compact(move);
+	}
+	
+	// Add a move that is already compact
+	public void addCompact(short move) {
+		if (size == moves.length)
+			moves = Arrays.copyOf(moves, moves.length * 2);
+		moves[size++] = move;
+	}
+	
+	// The compact move, Move.getFrom and Move.getTo can be used on it
+	public short get(int index) {
+		return moves[index];
+	}
+	
+	// The complete move, the board must be on the position before the move
+	public int getMove(Board board, int index) {
+		return Move.expand(board, moves[index]);
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	// Remove the moves after the first ones
+	public void truncate(int size) {
+		if (size < this.size)
+			this.size = size;
+	}
+	
+	public void clear() {
+		size = 0;
+		result = UNKNOWN;
+		fen = null;
+	}
+	
+	public int getResult() {
+		return result;
+	}
+	
+	public void setResult(int result) {
+		this.result = result;
+	}
+	
+	public String getFen() {
+		return fen;
+	}
+	
+	// null for the initial position of the game
+	public void setFen(String fen) {
+		this.fen = fen;
+	}
+	
+	// Put the initial position of the game on the board
+	public void setUp(Board board) {
+		if (fen == null)
+			board.setDefaultBoard();
+		else
+			Fen.load(board, fen);
+	}
+}
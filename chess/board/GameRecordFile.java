@@ -0,0 +1,160 @@
+package chess.board;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+
+public class GameRecordFile implements Closeable {
+	// Games saved on a file with 2 bytes for each move (see GameRecord). The
+	// games are added at the end of the file and the position of each game is
+	// added at the end of an index file (the same name with ".idx"), so any game
+	// is read without reading the games before it. Each game is:
+	//   result (1 byte), length of the FEN (2 bytes, 0 for the initial
+	//   position), FEN (UTF-8), number of moves (2 bytes), moves (2 bytes each)
+	// The position of a game is added to the index after the game is written,
+	// so a game that was not completed is not on the index
+	private static final int DATA_MAGIC = 0x43484752, INDEX_MAGIC = 0x43484749;  // "CHGR", "CHGI"
+	private static final int VERSION = 1, HEADER = 8;  // Magic and version at the start of both files
+	private static final int MAX_MOVES = 0xFFFF;
+	private FileChannel data, index;
+	private int count;  // Games on the index
+	
+	// Open the file, it is created if it does not exist
+	public GameRecordFile(String path) throws IOException {
+		this(Paths.get(path));
+	}
+	
+	public GameRecordFile(Path path) throws IOException {
+		data = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		try {
+			index = FileChannel.open(path.resolveSibling(path.getFileName() + ".idx"),
+					StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+			checkHeader(data, DATA_MAGIC);
+			checkHeader(index, INDEX_MAGIC);
+		}
+		catch (IOException | RuntimeException e) {
+			close();
+			throw e;
+		}
+		count = (int) ((index.size() - HEADER) / 8);  // A position that was not completed is ignored
+	}
+	
+	// A new file gets the header, other file must have the same header
+	private static void checkHeader(FileChannel channel, int magic) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER);
+		if (channel.size() == 0) {
+			header.putInt(magic).putInt(VERSION).flip();
+			writeFully(channel, header, 0);
+			return;
+		}
+		readFully(channel, header, 0);
+		if (header.getInt(0) != magic || header.getInt(4) != VERSION)
+			throw new IOException("This is not a file of games of this version");
+	}
+	
+	// Number of games on the file
+	public synchronized int size() {
+		return count;
+	}
+	
+	// Add the game at the end of the file and return its number
+	public synchronized int append(GameRecord game) throws IOException {
+		byte fen[] = game.getFen() == null ? new byte[0] : game.getFen().getBytes(StandardCharsets.UTF_8);
+		ByteBuffer buffer;
+		long position, end;
+		int i;
+		if (game.size() > MAX_MOVES || fen.length > 0xFFFF)
+			throw new IllegalArgumentException("The game is too long to be saved");
+		if (count > 0)  // A game that was not completed is written again
+			position = readPosition(count - 1) + gameLength(readPosition(count - 1));
+		else
+			position = HEADER;
+		buffer = ByteBuffer.allocate(5 + fen.length + 2 * game.size());
+		buffer.put((byte) game.getResult());
+		buffer.putShort((short) fen.length);
+		buffer.put(fen);
+		buffer.putShort((short) game.size());
+		for (i = 0; i < game.size(); i++)
+			buffer.putShort(game.get(i));
+		buffer.flip();
+		writeFully(data, buffer, position);
+		end = position + buffer.limit();
+		if (data.size() > end)
+			data.truncate(end);
+		buffer = ByteBuffer.allocate(8);
+		buffer.putLong(position).flip();
+		writeFully(index, buffer, HEADER + 8L * count);
+		return count++;
+	}
+	
+	// Read the game with the number, the first game is 0
+	public GameRecord read(int number) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(3), moves;
+		GameRecord game;
+		byte fen[];
+		long position;
+		int result, length, i;
+		if (number < 0 || number >= size())
+			throw new IndexOutOfBoundsException("There is no game " + number);
+		position = readPosition(number);
+		readFully(data, header, position);
+		result = header.get(0);
+		fen = new byte[header.getShort(1) & 0xFFFF];
+		position += 3;
+		if (fen.length > 0)
+			readFully(data, ByteBuffer.wrap(fen), position);
+		position += fen.length;
+		header = ByteBuffer.allocate(2);
+		readFully(data, header, position);
+		length = header.getShort(0) & 0xFFFF;
+		moves = ByteBuffer.allocate(2 * length);
+		readFully(data, moves, position + 2);
+		game = new GameRecord(length);
+		for (i = 0; i < length; i++)
+			game.addCompact(moves.getShort(2 * i));
+		game.setResult(result);
+		game.setFen(fen.length == 0 ? null : new String(fen, StandardCharsets.UTF_8));
+		return game;
+	}
+	
+	// The position of the game on the data file
+	private long readPosition(int number) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(8);
+		readFully(index, buffer, HEADER + 8L * number);
+		return buffer.getLong(0);
+	}
+	
+	// The bytes of the game that starts on the position
+	private long gameLength(long position) throws IOException {
+		ByteBuffer buffer = ByteBuffer.allocate(2);
+		int fen;
+		readFully(data, buffer, position + 1);
+		fen = buffer.getShort(0) & 0xFFFF;
+		buffer.clear();
+		readFully(data, buffer, position + 3 + fen);
+		return 5 + fen + 2L * (buffer.getShort(0) & 0xFFFF);
+	}
+	
+	private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			if (channel.read(buffer, position + buffer.position()) < 0)
+				throw new IOException("The file ends before the game");
+		}
+	}
+	
+	private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining())
+			channel.write(buffer, position + buffer.position());
+	}
+	
+	public synchronized void close() throws IOException {
+		if (data != null)
+			data.close();
+		if (index != null)
+			index.close();
+	}
+}
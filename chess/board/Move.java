@@ -0,0 +1,92 @@
+package chess.board;
+import chess.pieces.EnumPieces;
+import chess.pieces.Piece;
+
+public class Move {
+	// A move is saved on a single int, so the lists of moves are arrays of
+	// primitives and nothing is allocated for each move. The bits are:
+	// 0-5 origin square, 6-11 destination square, 12-14 moved piece,
+	// 15-17 eaten piece, 18-20 promotion piece and 21-22 special move
+	// The squares are numbered like the bitboards (y * 8 + x)
+	public static final int NORMAL = 0, CASTLING = 1, EATEN_BY_PASS = 2;
+	private static final EnumPieces TYPES[] = EnumPieces.values();
+	
+	public static int create(int from, int to, EnumPieces piece, EnumPieces eaten, EnumPieces promotion, int special) {
+		return from | (to << 6) | (piece.ordinal() << 12) | (eaten.ordinal() << 15)
+				| (promotion.ordinal() << 18) | (special << 21);
+	}
+	
+	public static int getFrom(int move) {
+		return move & 63;
+	}
+	
+	public static int getTo(int move) {
+		return (move >>> 6) & 63;
+	}
+	
+	public static EnumPieces getPiece(int move) {
+		return TYPES[(move >>> 12) & 7];
+	}
+	
+	// NONE if the move does not eat
+	public static EnumPieces getEaten(int move) {
+		return TYPES[(move >>> 15) & 7];
+	}
+	
+	// NONE if the move is not a coronation
+	public static EnumPieces getPromotion(int move) {
+		return TYPES[(move >>> 18) & 7];
+	}
+	
+	public static int getSpecial(int move) {
+		return (move >>> 21) & 3;
+	}
+	
+	// A move on 16 bits for the histories of the games: the squares on the same
+	// bits of the complete move (getFrom and getTo can be used) and the coronation
+	// on bits 12-14. The other data is found on the board where it is played
+	public static short compact(int move) {
+		return (short) ((move & 0xFFF) | (((move >>> 18) & 7) << 12));
+	}
+	
+	// The complete move of a compact move, the board must be on the position
+	// before the move. The move is not checked, it must be a valid move
+	public static int expand(Board board, int compact) {
+		int from = compact & 63, to = (compact >>> 6) & 63, special = NORMAL;
+		Piece piece = board.getPiece(from), target = board.getPiece(to);
+		EnumPieces type, eaten;
+		if (piece == null)
+			throw new IllegalArgumentException("There is no piece on " + squareName(from));
+		type = piece.getType();
+		eaten = target == null ? EnumPieces.NONE : target.getType();
+		if (type == EnumPieces.KING && Math.abs(Bitboards.getX(to) - Bitboards.getX(from)) == 2)
+			special = CASTLING;  // The king moves 2 columns only on a castling
+		else if (type == EnumPieces.PAWN && target == null && Bitboards.getX(to) != Bitboards.getX(from)) {
+			special = EATEN_BY_PASS;  // A pawn that moves on diagonal to a free square
+			eaten = EnumPieces.PAWN;
+		}
+		return create(from, to, type, eaten, TYPES[(compact >>> 12) & 7], special);
+	}
+	
+	// The move as text with the squares, like "e2e4" or "e7e8q" for a coronation
+	public static String toCoordinates(int move) {
+		String text = squareName(getFrom(move)) + squareName(getTo(move));
+		switch (getPromotion(move)) {
+			case QUEEN:
+				return text + "q";
+			case ROOK:
+				return text + "r";
+			case BISHOP:
+				return text + "b";
+			case KNIGHT:
+				return text + "n";
+			default:
+				return text;
+		}
+	}
+	
+	// The name of a square, like "e4"
+	public static String squareName(int square) {
+		return "" + (char) ('a' + Bitboards.getX(square)) + (char) ('1' + Bitboards.getY(square));
+	}
+}
@@ -0,0 +1,48 @@
+package chess.board;
+import java.util.Arrays;
+
+public class MoveList {
+	// A list of moves (see Move) on an array that is reused, the generators
+	// add the moves here and the list is cleared for the next position
+	private int moves[];
+	private int size = 0;
+	
+	public MoveList() {
+		this(256);  // More than the valid moves of any position
+	}
+	
+	public MoveList(int capacity) {
+		moves = new int[capacity];
+	}
+	
+	public void add(int move) {
+		if (size == moves.length)  // The list only grows if it is used for long games
+			moves = Arrays.copyOf(moves, moves.length * 2);
+		moves[size++] = move;
+	}
+	
+	public int get(int index) {
+		return moves[index];
+	}
+	
+	public int size() {
+		return size;
+	}
+	
+	public void clear() {
+		size = 0;
+	}
+	
+	// Remove the moves after the first ones
+	public void truncate(int size) {
+		if (size < this.size)
+			this.size = size;
+	}
+	
+	// Exchange the moves of 2 positions, this is for sort the moves
+	public void swap(int i, int j) {
+		int move = moves[i];
+		moves[i] = moves[j];
+		moves[j] = move;
+	}
+}
@@ -0,0 +1,78 @@
+package chess.board;
+import chess.pieces.*;
+
+public class PositionCode {
+	// A position on 4 longs (32 bytes) that is the same for the same position,
+	// without the move counters:
+	//   0: the occupied squares
+	//   1, 2: the code of each piece (4 bits, see Piece.getCode) by the order
+	//         of the occupied squares, there are 32 pieces at most
+	//   3: bit 0 the color that moves, bits 1-4 the castling rights and
+	//      bits 5-11 the en passant square + 1 (0 for none)
+	// The en passant square is only saved if a pawn can eat there, so a
+	// position has one code however it was reached. The first long is never 0
+	// because the kings are always on the board
+	public static final int LONGS = 4, BYTES = LONGS * 8;
+	
+	// Write the code of the position on code[offset] to code[offset + 3]
+	public static void encode(Board board, long code[], int offset) {
+		long occupied = board.getOccupied(), squares = occupied, pieces[] = {0, 0};
+		int square, i = 0, enPassant = board.getEnPassant();
+		EnumColors turn = board.getTurn(), enemy;
+		if (Long.bitCount(occupied) > 32)  // Only a board made piece by piece can have more
+			throw new IllegalArgumentException("A position code has 32 pieces at most: " + Fen.toFen(board, 1));
+		while (squares != 0) {
+			square = Long.numberOfTrailingZeros(squares);
+			squares &= squares - 1;
+			pieces[i >>> 4] |= (long) board.getPiece(square).getCode() << ((i & 15) << 2);
+			i++;
+		}
+		if (enPassant != Board.NO_SQUARE) {
+			enemy = turn == EnumColors.WHITE ? EnumColors.BLACK : EnumColors.WHITE;
+			if ((Bitboards.pawnAttacks(enPassant, enemy) & board.getBitboard(EnumPieces.PAWN, turn)) == 0)
+				enPassant = Board.NO_SQUARE;  // No pawn can eat by pass
+		}
+		code[offset] = occupied;
+		code[offset + 1] = pieces[0];
+		code[offset + 2] = pieces[1];
+		code[offset + 3] = turn.ordinal() | (board.getCastlingRights() << 1) | ((enPassant + 1) << 5);
+	}
+	
+	public static long[] encode(Board board) {
+		long code[] = new long[LONGS];
+		encode(board, code, 0);
+		return code;
+	}
+	
+	// Put the position of the code on the board, the move counters start at 0
+	public static void decode(long code[], int offset, Board board) {
+		long squares = code[offset], state = code[offset + 3];
+		int square, i = 0;
+		board.clear();
+		while (squares != 0) {
+			square = Long.numberOfTrailingZeros(squares);
+			squares &= squares - 1;
+			board.addPiece(Piece.fromCode((int) (code[offset + 1 + (i >>> 4)] >>> ((i & 15) << 2)) & 15),
+					Bitboards.getX(square), Bitboards.getY(square));
+			i++;
+		}
+		board.setTurn((state & 1) == 0 ? EnumColors.WHITE : EnumColors.BLACK);
+		board.setCastlingRights((int) (state >>> 1) & Board.ALL_CASTLING);
+		board.setEnPassant((int) ((state >>> 5) & 127) - 1);
+	}
+	
+	public static void decode(long code[], Board board) {
+		decode(code, 0, board);
+	}
+	
+	// A hash of the code with all bits mixed, for hash tables
+	public static long hash(long code[], int offset) {
+		long hash = code[offset] * 0x9E3779B97F4A7C15L;
+		hash = Long.rotateLeft(hash ^ code[offset + 1], 29) * 0xBF58476D1CE4E5B9L;
+		hash = Long.rotateLeft(hash ^ code[offset + 2], 31) * 0x94D049BB133111EBL;
+		hash ^= code[offset + 3];
+		hash = (hash ^ (hash >>> 30)) * 0xBF58476D1CE4E5B9L;
+		hash = (hash ^ (hash >>> 27)) * 0x94D049BB133111EBL;
+		return hash ^ (hash >>> 31);
+	}
+}
@@ -0,0 +1,179 @@
+package chess.board;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+public class PositionSet {
+	// A set of positions that also counts how many times each one was added.
+	// The positions are saved with their codes (see PositionCode) out of the
+	// Java heap, on direct buffers, so hundreds of millions of positions do not
+	// make work for the garbage collector. Each entry is 40 bytes: the code and
+	// the count, an entry with the first long 0 is free (a code is never 0).
+	// The entries are an open addressing table: a position goes to the entry of
+	// its hash or to the next free one. When 3/4 of the entries are used, the
+	// table is doubled. This class is not for several threads at the same time.
+	// The direct buffers are limited by -XX:MaxDirectMemorySize
+	private static final int ENTRY = PositionCode.BYTES + 8;
+	private static final int SEGMENT_BITS = 24;  // 16M entries (640 MB) on each buffer
+	private static final long MIN_CAPACITY = 1024;
+	private ByteBuffer segments[];
+	private long capacity, mask, size = 0;
+	private long code[] = new long[PositionCode.LONGS];
+	
+	// The table starts with room for the expected positions
+	public PositionSet(long expected) {
+		long entries = MIN_CAPACITY;
+		while (entries * 3 / 4 < expected)
+			entries *= 2;
+		allocate(entries);
+	}
+	
+	public PositionSet() {
+		this(MIN_CAPACITY);
+	}
+	
+	private void allocate(long entries) {
+		int count = (int) Math.max(1, entries >>> SEGMENT_BITS), i;
+		capacity = entries;
+		mask = entries - 1;
+		segments = new ByteBuffer[count];
+		for (i = 0; i < count; i++)
+			segments[i] = ByteBuffer.allocateDirect((int) (Math.min(entries, 1L << SEGMENT_BITS) * ENTRY))
+					.order(ByteOrder.nativeOrder());
+	}
+	
+	// Add the position, true if it was not on the set
+	public boolean add(Board board) {
+		return increment(board) == 1;
+	}
+	
+	public boolean contains(Board board) {
+		return getCount(board) > 0;
+	}
+	
+	// Add the position once more and return how many times it was added
+	public long increment(Board board) {
+		PositionCode.encode(board, code, 0);
+		return increment(code, 0);
+	}
+	
+	// Times that the position was added, 0 if it is not on the set
+	public long getCount(Board board) {
+		PositionCode.encode(board, code, 0);
+		return getCount(code, 0);
+	}
+	
+	public long increment(long code[], int offset) {
+		long entry = find(code, offset), count;
+		ByteBuffer segment = segment(entry);
+		int position = position(entry), i;
+		if (segment.getLong(position) == 0) {  // A new position
+			if (size + 1 > capacity * 3 / 4) {
+				grow();
+				return increment(code, offset);
+			}
+			for (i = 0; i < PositionCode.LONGS; i++)
+				segment.putLong(position + 8 * i, code[offset + i]);
+			size++;
+		}
+		count = segment.getLong(position + PositionCode.BYTES) + 1;
+		segment.putLong(position + PositionCode.BYTES, count);
+		return count;
+	}
+	
+	public long getCount(long code[], int offset) {
+		long entry = find(code, offset);
+		ByteBuffer segment = segment(entry);
+		int position = position(entry);
+		if (segment.getLong(position) == 0)
+			return 0;
+		return segment.getLong(position + PositionCode.BYTES);
+	}
+	
+	// Different positions on the set
+	public long size() {
+		return size;
+	}
+	
+	// Entries of the table, used or free
+	public long capacity() {
+		return capacity;
+	}
+	
+	public void clear() {
+		int i;
+		for (ByteBuffer segment : segments) {
+			for (i = 0; i < segment.capacity(); i += ENTRY)
+				segment.putLong(i, 0);
+		}
+		size = 0;
+	}
+	
+	// Call the visitor with the code and the count of each position
+	public void forEach(Visitor visitor) {
+		long entry, entryCode[] = new long[PositionCode.LONGS];
+		ByteBuffer segment;
+		int position, i;
+		for (entry = 0; entry < capacity; entry++) {
+			segment = segment(entry);
+			position = position(entry);
+			if (segment.getLong(position) == 0)
+				continue;
+			for (i = 0; i < PositionCode.LONGS; i++)
+				entryCode[i] = segment.getLong(position + 8 * i);
+			visitor.visit(entryCode, segment.getLong(position + PositionCode.BYTES));
+		}
+	}
+	
+	public interface Visitor {
+		void visit(long code[], long count);
+	}
+	
+	// The entry of the position, or the free entry where it would be added
+	private long find(long code[], int offset) {
+		long entry = PositionCode.hash(code, offset) & mask;
+		ByteBuffer segment;
+		int position, i;
+		while (true) {
+			segment = segment(entry);
+			position = position(entry);
+			if (segment.getLong(position) == 0)
+				return entry;
+			for (i = 0; i < PositionCode.LONGS; i++) {
+				if (segment.getLong(position + 8 * i) != code[offset + i])
+					break;
+			}
+			if (i == PositionCode.LONGS)
+				return entry;
+			entry = (entry + 1) & mask;  // The next entry, the last one goes to the first
+		}
+	}
+	
+	// Move all positions to a table of double size
+	private void grow() {
+		ByteBuffer old[] = segments;
+		long entryCode[] = new long[PositionCode.LONGS], oldCapacity = capacity, entry, target;
+		ByteBuffer segment;
+		int position, i;
+		allocate(capacity * 2);
+		for (entry = 0; entry < oldCapacity; entry++) {
+			segment = old[(int) (entry >>> SEGMENT_BITS)];
+			position = (int) (entry & ((1L << SEGMENT_BITS) - 1)) * ENTRY;
+			if (segment.getLong(position) == 0)
+				continue;
+			for (i = 0; i < PositionCode.LONGS; i++)
+				entryCode[i] = segment.getLong(position + 8 * i);
+			target = find(entryCode, 0);
+			for (i = 0; i < PositionCode.LONGS; i++)
+				segment(target).putLong(position(target) + 8 * i, entryCode[i]);
+			segment(target).putLong(position(target) + PositionCode.BYTES, segment.getLong(position + PositionCode.BYTES));
+		}
+	}
+	
+	private ByteBuffer segment(long entry) {
+		return segments[(int) (entry >>> SEGMENT_BITS)];
+	}
+	
+	private static int position(long entry) {
+		return (int) (entry & ((1L << SEGMENT_BITS) - 1)) * ENTRY;
+	}
+}
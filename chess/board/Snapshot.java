@@ -0,0 +1,229 @@
+package chess.board;
+import chess.pieces.*;
+
+public final class Snapshot {
+	// A position that never changes, so many threads can read it at the same
+	// time without locks and without copies: the window draws it while the
+	// computer searches it and other thread saves it. The pieces are kept on
+	// 4 longs, one for each bit of their codes (see Piece.getCode), the code
+	// of the square s has its bit i on the bit s of planes[i]. A move only
+	// changes some bits of those longs, so playing it creates a new snapshot
+	// of a few words and the old one is not touched. The new snapshot keeps
+	// the old one as its parent, so the snapshots of a game share all their
+	// history, and the repetitions are found on it like on Board.
+	// All fields are final, so any thread that gets a snapshot sees all
+	// of its values without synchronization
+	private static final EnumPieces TYPES[] = EnumPieces.values();
+	private static final EnumColors COLORS[] = EnumColors.values();
+	private static final int PLANES = 4;  // Bits of a piece code
+	private final long plane0, plane1, plane2, plane3;  // Bits 0-2 are the type, bit 3 is the color
+	private final EnumColors turn;
+	private final int castlingRights, enPassant, halfmoveClock;
+	private final long key;  // The same key of Board (see Zobrist)
+	private final Snapshot parent;  // The position before the last move, null for the first one
+	
+	private Snapshot(long planes[], EnumColors turn, int castlingRights, int enPassant, int halfmoveClock,
+			long key, Snapshot parent) {
+		plane0 = planes[0];
+		plane1 = planes[1];
+		plane2 = planes[2];
+		plane3 = planes[3];
+		this.turn = turn;
+		this.castlingRights = castlingRights;
+		this.enPassant = enPassant;
+		this.halfmoveClock = halfmoveClock;
+		this.key = key;
+		this.parent = parent;
+	}
+	
+	// The position of the board, the positions before it are not known,
+	// so only the repetitions of the moves played on the snapshot are found
+	public static Snapshot of(Board board) {
+		long squares = board.getOccupied(), planes[] = new long[PLANES];
+		int square;
+		while (squares != 0) {
+			square = Long.numberOfTrailingZeros(squares);
+			squares &= squares - 1;
+			put(planes, square, board.getPiece(square).getCode());
+		}
+		return new Snapshot(planes, board.getTurn(), board.getCastlingRights(), board.getEnPassant(),
+				board.getHalfmoveClock(), board.getKey(), null);
+	}
+	
+	public static Snapshot fromFen(String fen) {
+		Board board = new Board();
+		Fen.load(board, fen);
+		return of(board);
+	}
+	
+	// A new board with this position, for the move generator and the search.
+	// The keys of the positions that can repeat are also put on the board
+	public Board toBoard() {
+		Board board = new Board();
+		long squares = getOccupied(), keys[];
+		int square, count = 0, i;
+		Snapshot position;
+		while (squares != 0) {
+			square = Long.numberOfTrailingZeros(squares);
+			squares &= squares - 1;
+			board.addPiece(getPiece(square), Bitboards.getX(square), Bitboards.getY(square));
+		}
+		board.setTurn(turn);
+		board.setCastlingRights(castlingRights);
+		board.setEnPassant(enPassant);
+		board.setHalfmoveClock(halfmoveClock);
+		for (position = parent; position != null && count < halfmoveClock; position = position.parent)
+			count++;
+		keys = new long[count];
+		for (i = count - 1, position = parent; i >= 0; i--, position = position.parent)
+			keys[i] = position.key;  // The oldest first
+		board.setHistory(keys, count);
+		return board;
+	}
+	
+	// The position after a move generated for this position (see MoveGenerator),
+	// the move is made like Board.makeMove does it
+	public Snapshot play(int move) {
+		long planes[] = {plane0, plane1, plane2, plane3}, newKey = key;
+		int from = Move.getFrom(move), to = Move.getTo(move), code = getCode(from), color = code >> 3,
+				rights = castlingRights, passant = Board.NO_SQUARE, clock, eatenSquare, rookFrom, rookTo;
+		EnumPieces type = TYPES[code & 7], promotion = Move.getPromotion(move);
+		EnumColors enemy = COLORS[1 - color];
+		if (code == 0 || from == to)
+			throw new IllegalArgumentException("There is no piece to move: " + Move.toCoordinates(move));
+		clock = type == EnumPieces.PAWN || getCode(to) != 0 ? 0 : halfmoveClock + 1;
+		// A pawn that goes on diagonal to the jumped square eats by pass
+		if (type == EnumPieces.PAWN && to == enPassant && Bitboards.getX(from) != Bitboards.getX(to)) {
+			eatenSquare = Bitboards.square(Bitboards.getX(to), Bitboards.getY(from));
+			if (getCode(eatenSquare) == Piece.getCode(EnumPieces.PAWN, enemy))
+				newKey ^= put(planes, eatenSquare, 0);
+		}
+		newKey ^= put(planes, from, 0);
+		newKey ^= put(planes, to, code);
+		// The jumped square is saved only if a pawn can eat there
+		if (type == EnumPieces.PAWN && Math.abs(Bitboards.getY(from) - Bitboards.getY(to)) == 2
+				&& (Bitboards.pawnAttacks((from + to) / 2, COLORS[color]) & getBitboard(EnumPieces.PAWN, enemy)) != 0)
+			passant = (from + to) / 2;
+		// A king that moves 2 columns castles, the rook goes to the other side of the king
+		if (type == EnumPieces.KING && Math.abs(Bitboards.getX(from) - Bitboards.getX(to)) == 2) {
+			rookFrom = Bitboards.square(Bitboards.getX(to) < Board.HIGH_LIMIT / 2 ? Board.LOW_LIMIT : Board.HIGH_LIMIT,
+					Bitboards.getY(from));
+			rookTo = (from + to) / 2;
+			if (getCode(rookFrom) != 0) {
+				newKey ^= put(planes, rookTo, getCode(rookFrom));
+				newKey ^= put(planes, rookFrom, 0);
+			}
+		}
+		if (type == EnumPieces.KING)
+			rights &= ~((Board.WHITE_KING_SIDE | Board.WHITE_QUEEN_SIDE) << (2 * color));
+		rights &= Board.CASTLING_MASKS[from] & Board.CASTLING_MASKS[to];
+		if (type == EnumPieces.PAWN && promotion != EnumPieces.NONE && promotion != EnumPieces.PAWN
+				&& promotion != EnumPieces.KING)
+			newKey ^= put(planes, to, Piece.getCode(promotion, COLORS[color]));
+		newKey ^= Zobrist.castling(castlingRights) ^ Zobrist.castling(rights);
+		newKey ^= Zobrist.enPassant(enPassant) ^ Zobrist.enPassant(passant);
+		newKey ^= Zobrist.turn(turn) ^ Zobrist.turn(enemy);
+		return new Snapshot(planes, enemy, rights, passant, clock, newKey, this);
+	}
+	
+	// Put the code on the square of the planes (0 empties it) and return
+	// the change of the key
+	private static long put(long planes[], int square, int code) {
+		long change = 0;
+		int i, old = 0;
+		for (i = 0; i < PLANES; i++) {
+			old |= (int) (planes[i] >>> square & 1) << i;
+			planes[i] = planes[i] & ~(1L << square) | (long) (code >> i & 1) << square;
+		}
+		if (old != 0)
+			change ^= Zobrist.piece(old, square);
+		if (code != 0)
+			change ^= Zobrist.piece(code, square);
+		return change;
+	}
+	
+	// The code of the piece on the square, 0 is empty
+	public int getCode(int square) {
+		return (int) (plane0 >>> square & 1) | (int) (plane1 >>> square & 1) << 1
+				| (int) (plane2 >>> square & 1) << 2 | (int) (plane3 >>> square & 1) << 3;
+	}
+	
+	// null for an empty square, like Board.getPiece
+	public Piece getPiece(int square) {
+		return Piece.fromCode(getCode(square));
+	}
+	
+	public Piece getPiece(int x, int y) {
+		if (! Board.positionInsideBoard(x, y))
+			return null;
+		return getPiece(Bitboards.square(x, y));
+	}
+	
+	// The squares of the pieces of a type and color, the planes of the bits
+	// that are 0 on the code are inverted
+	public long getBitboard(EnumPieces type, EnumColors color) {
+		int code = Piece.getCode(type, color);
+		if (type == EnumPieces.NONE)
+			return 0;
+		return ((code & 1) != 0 ? plane0 : ~plane0) & ((code & 2) != 0 ? plane1 : ~plane1)
+				& ((code & 4) != 0 ? plane2 : ~plane2) & ((code & 8) != 0 ? plane3 : ~plane3);
+	}
+	
+	public long getOccupied(EnumColors color) {
+		return getOccupied() & (color == EnumColors.BLACK ? plane3 : ~plane3);
+	}
+	
+	// Each piece has a type that is not 0
+	public long getOccupied() {
+		return plane0 | plane1 | plane2;
+	}
+	
+	public int getKingSquare(EnumColors color) {
+		long king = getBitboard(EnumPieces.KING, color);
+		return king == 0 ? Board.NO_SQUARE : Long.numberOfTrailingZeros(king);
+	}
+	
+	public EnumColors getTurn() {
+		return turn;
+	}
+	
+	public int getCastlingRights() {
+		return castlingRights;
+	}
+	
+	public int getEnPassant() {
+		return enPassant;
+	}
+	
+	public int getHalfmoveClock() {
+		return halfmoveClock;
+	}
+	
+	public long getKey() {
+		return key;
+	}
+	
+	// The position before the last move, null if it is the first one
+	public Snapshot getParent() {
+		return parent;
+	}
+	
+	// Number of times that the position was on the game before, with the
+	// same color to move, only after the last eat or pawn move (see Board)
+	public int getRepetitions() {
+		Snapshot position = parent;
+		int plies, repetitions = 0;
+		for (plies = 1; plies <= halfmoveClock && position != null; plies++, position = position.parent)
+			if ((plies & 1) == 0 && position.key == key)
+				repetitions++;
+		return repetitions;
+	}
+	
+	public boolean threefoldRepetition() {
+		return getRepetitions() >= 2;
+	}
+	
+	public boolean fiftyMovesRule() {
+		return halfmoveClock >= 100;
+	}
+}
@@ -0,0 +1,17 @@
+package chess.board;
+
+// This class saves everything that a move changed on the board,
+// so the move can be undone and leave the board exactly as before.
+// The pieces are saved with their codes (see Piece.getCode)
+class UndoRecord {
+	int from, to, moved, captured;
+	int rookFrom, rookTo;  // The rook of a castling
+	int eatenSquare, eaten;  // The pawn eaten by pass
+	int castlingRights, enPassant, halfmoveClock;  // State of the board before the move
+	boolean done;  // The move could be rejected by the validations
+	
+	void clear() {
+		rookFrom = eatenSquare = Board.NO_SQUARE;
+		done = false;
+	}
+}
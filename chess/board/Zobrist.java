@@ -0,0 +1,44 @@
+package chess.board;
+import java.util.Random;
+
+public class Zobrist {
+	// The key of a position is the xor of a random number for each piece on its
+	// square, for the castling rights, for the en passant square and for the
+	// color that moves. A move only changes a few of these numbers, so the board
+	// updates its key with a few xor instead of computing it again. The seed is
+	// fixed, so the same position has the same key on all runs
+	private static final long PIECES[][] = new long[16][64];  // [piece code][square]
+	private static final long CASTLING[] = new long[16];  // [castling rights]
+	private static final long EN_PASSANT[] = new long[64];  // [square]
+	private static final long BLACK_MOVES;
+	
+	static {
+		Random random = new Random(0x5EEDL);
+		int i, j;
+		for (i = 0; i < PIECES.length; i++)
+			for (j = 0; j < 64; j++)
+				PIECES[i][j] = random.nextLong();
+		for (i = 1; i < CASTLING.length; i++)  // No castlings is 0
+			CASTLING[i] = random.nextLong();
+		for (i = 0; i < 64; i++)
+			EN_PASSANT[i] = random.nextLong();
+		BLACK_MOVES = random.nextLong();
+	}
+	
+	public static long piece(int code, int square) {
+		return PIECES[code][square];
+	}
+	
+	public static long castling(int rights) {
+		return CASTLING[rights];
+	}
+	
+	// Board.NO_SQUARE does not change the key
+	public static long enPassant(int square) {
+		return square == Board.NO_SQUARE ? 0 : EN_PASSANT[square];
+	}
+	
+	public static long turn(EnumColors color) {
+		return color == EnumColors.BLACK ? BLACK_MOVES : 0;
+	}
+}
@@ -0,0 +1,21 @@
+package chess.engine;
+import chess.board.*;
+import chess.pieces.EnumPieces;
+
+public class Evaluation {
+	// Value of each piece type in hundredths of a pawn, by the order of EnumPieces,
+	// this is for order the moves by the pieces that they eat
+	public static final int VALUES[] = {0, 100, 500, 320, 330, 900, 0};
+	
+	// The score of the position for the color that moves, positive is better for it.
+	// The board keeps the values of the pieces on their squares for the middlegame
+	// and the endgame, they are mixed by the pieces left, so this does not visit
+	// the board. With all pieces it is the middlegame value, with only kings and
+	// pawns it is the endgame value
+	public static int evaluate(Board board) {
+		int phase = Math.min(board.getPhase(), PieceSquareTables.MAX_PHASE);
+		int score = (board.getMiddlegameScore() * phase
+				+ board.getEndgameScore() * (PieceSquareTables.MAX_PHASE - phase)) / PieceSquareTables.MAX_PHASE;
+		return board.getTurn() == EnumColors.WHITE ? score : -score;
+	}
+}
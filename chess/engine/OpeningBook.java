@@ -0,0 +1,113 @@
+package chess.engine;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ThreadLocalRandom;
+
+import chess.board.*;
+import chess.rules.MoveGenerator;
+
+public class OpeningBook implements Closeable {
+	// The book has the moves played on many games from the first positions,
+	// so the computer plays them without a search. The file has a header and
+	// then records of 12 bytes sorted by the key of the position (signed):
+	//   key (8 bytes, see Board.getKey), move (2 bytes, see Move.compact)
+	//   and weight (2 bytes, how good the move was on the games)
+	// The file is mapped on memory and a position is found with a binary search,
+	// without reading the file or creating objects. The mapped pages are shared
+	// by all processes that open the same book (see chess.tools.BookBuilder)
+	public static final int MAGIC = 0x4348424B, VERSION = 1;  // "CHBK"
+	public static final int HEADER = 16, RECORD = 12;  // Magic, version and number of records
+	private MappedByteBuffer buffer;
+	private int count;
+	
+	public OpeningBook(String path) throws IOException {
+		this(Paths.get(path));
+	}
+	
+	public OpeningBook(Path path) throws IOException {
+		long records;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			if (channel.size() < HEADER)
+				throw new IOException("This is not an opening book");
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());  // The map stays after the close
+		}
+		records = buffer.getLong(8);
+		if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION
+				|| records < 0 || HEADER + records * RECORD > buffer.capacity())
+			throw new IOException("This is not an opening book of this version");
+		count = (int) records;
+	}
+	
+	// Number of records (moves) of the book
+	public int size() {
+		return count;
+	}
+	
+	// The first record of the key, or the record where it would be
+	public int find(long key) {
+		int low = 0, high = count, middle;
+		while (low < high) {
+			middle = (low + high) >>> 1;
+			if (getKey(middle) < key)
+				low = middle + 1;
+			else
+				high = middle;
+		}
+		return low;
+	}
+	
+	public long getKey(int record) {
+		return buffer.getLong(HEADER + record * RECORD);
+	}
+	
+	// The compact move of the record (see Move.compact)
+	public short getCompactMove(int record) {
+		return buffer.getShort(HEADER + record * RECORD + 8);
+	}
+	
+	public int getWeight(int record) {
+		return buffer.getShort(HEADER + record * RECORD + 10) & 0xFFFF;
+	}
+	
+	// Choose a move of the key with a probability by its weight,
+	// 0 if the book does not have the position
+	public short probe(long key) {
+		int first = find(key), record, total = 0, chosen;
+		for (record = first; record < count && getKey(record) == key; record++)
+			total += getWeight(record);
+		if (total == 0)
+			return 0;
+		chosen = ThreadLocalRandom.current().nextInt(total);
+		for (record = first; chosen >= getWeight(record); record++)
+			chosen -= getWeight(record);
+		return getCompactMove(record);
+	}
+	
+	// A move of the book for the position, it is checked with the valid moves
+	// because other position could have the same key. Search.NO_MOVE if the
+	// book does not have a valid move for the position
+	public int getMove(Board board) {
+		MoveList moves;
+		short compact = probe(board.getKey());
+		int i;
+		if (compact == 0)
+			return Search.NO_MOVE;
+		moves = new MoveList();
+		new MoveGenerator(board, board.getTurn()).generateMoves(moves);
+		for (i = 0; i < moves.size(); i++) {
+			if (Move.compact(moves.get(i)) == compact)
+				return moves.get(i);
+		}
+		return Search.NO_MOVE;
+	}
+	
+	// The mapped memory is freed when the book is not used anymore
+	public void close() {
+		count = 0;
+	}
+}
@@ -0,0 +1,140 @@
+package chess.engine;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import chess.board.*;
+
+public class ParallelSearch {
+	// Several threads search the same position at the same time (Lazy SMP).
+	// Each thread has its own copy of the board and its own order of moves,
+	// they only share the transposition table, so a thread uses the results
+	// of the others when it reaches the same positions. Half of the helper
+	// threads start one depth ahead, so they fill the table for the next depth.
+	// The first thread runs on the thread that calls findBestMove, and its
+	// move is played unless a helper ended a deeper search
+	private TranspositionTable table;
+	private Search workers[];
+	private ExecutorService helpers;  // null with a single thread
+	
+	public ParallelSearch(TranspositionTable table, int threads) {
+		int i;
+		this.table = table;
+		workers = new Search[Math.max(1, threads)];
+		for (i = 0; i < workers.length; i++)
+			workers[i] = new Search(table);
+		if (workers.length > 1)
+			helpers = Executors.newFixedThreadPool(workers.length - 1, new ThreadFactory() {
+				private int count = 0;
+	
+				public synchronized Thread newThread(Runnable task) {
+					Thread thread = new Thread(task, "search-helper-" + (++count));
+					thread.setDaemon(true);  // The program can end while they wait
+					return thread;
+				}
+			});
+	}
+	
+	// The tables are only read, all threads use the same ones
+	public void setTablebases(Tablebases tablebases) {
+		for (Search worker : workers)
+			worker.setTablebases(tablebases);
+	}
+	
+	// Only the depths of the main thread are told, the helpers skip some of them
+	public void setListener(Search.Listener listener) {
+		workers[0].setListener(listener);
+	}
+	
+	// Like Search.findBestMove, with all threads
+	public int findBestMove(Board position, int timeMs, int maxDepth) {
+		return findBestMove(position, timeMs, maxDepth, prepare());
+	}
+	
+	// Like Search.prepare. The threads are always prepared and stopped
+	// together, so all of them give the same number
+	public synchronized int prepare() {
+		int search = 0;
+		for (Search worker : workers)
+			search = worker.prepare();
+		return search;
+	}
+	
+	// Like findBestMove, for a search prepared before on the thread that stops it
+	public int findBestMove(final Board position, final int timeMs, final int maxDepth, final int search) {
+		List<Future<?>> tasks = new ArrayList<>();
+		int i;
+		table.newSearch();
+		for (i = 1; i < workers.length; i++) {
+			final Search worker = workers[i];
+			final int firstDepth = 1 + (i & 1);
+			tasks.add(helpers.submit(new Runnable() {
+				public void run() {
+					worker.iterate(position, timeMs, maxDepth, firstDepth, search);
+				}
+			}));
+		}
+		workers[0].iterate(position, timeMs, maxDepth, 1, search);
+		for (i = 1; i < workers.length; i++)
+			workers[i].stop(search);  // The main thread decides when the search ends, the next search is not stopped
+		for (Future<?> task : tasks) {
+			try {
+				task.get();
+			}
+			catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			catch (ExecutionException e) {
+				throw new IllegalStateException("A search thread failed", e.getCause());
+			}
+		}
+		return chosen().getBestMove();
+	}
+	
+	// Stop all threads from other thread, findBestMove returns the best move found.
+	// The searches prepared before are also stopped
+	public synchronized void stop() {
+		for (Search worker : workers)
+			worker.stop();
+	}
+	
+	public int getThreads() {
+		return workers.length;
+	}
+	
+	// The score and the depth of the thread whose move was chosen
+	public int getScore() {
+		return chosen().getScore();
+	}
+	
+	public int getDepth() {
+		return chosen().getDepth();
+	}
+	
+	// Nodes of all threads
+	public long getNodes() {
+		long nodes = 0;
+		for (Search worker : workers)
+			nodes += worker.getNodes();
+		return nodes;
+	}
+	
+	// End the helper threads, the search can not be used after this
+	public void shutdown() {
+		if (helpers != null)
+			helpers.shutdownNow();
+	}
+	
+	// A helper that ended a deeper search has a better move than the main thread
+	private Search chosen() {
+		int i, best = 0;
+		for (i = 1; i < workers.length; i++)
+			if (workers[i].getDepth() > workers[best].getDepth() && workers[i].getBestMove() != Search.NO_MOVE)
+				best = i;
+		return workers[best];
+	}
+}
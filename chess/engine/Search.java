@@ -0,0 +1,332 @@
+package chess.engine;
+import java.util.Arrays;
+
+import chess.board.*;
+import chess.pieces.EnumPieces;
+import chess.rules.MoveGenerator;
+
+public class Search {
+	// The computer player searches the moves with alpha-beta: the moves of a
+	// position are tried in order, and when a move is already too good for the
+	// opponent (it would not let us reach this position), the rest are skipped.
+	// The search goes 1 move deep, then 2, and so on (iterative deepening) until
+	// the time ends, so there is always a move from the last complete depth,
+	// and the best moves of each depth are tried first on the next one
+	public static final int NO_MOVE = 0;  // A move from a1 to a1 is not possible
+	public static final int INFINITE = 32000, MATE = 31000;  // Mate in n moves is MATE - n
+	public static final int MAX_PLY = 100;  // The scores over MATE - MAX_PLY are mates
+	private static final int CHECK_TIME = 255;  // The time is checked each 256 nodes
+	private TranspositionTable table;
+	private Tablebases tablebases;  // null without endgame tables
+	private Board board;
+	private boolean stopped = false;  // The current search must end, only its thread uses it
+	private boolean stoppable;  // False while the first depth runs, so there is always a searched move
+	// Each search has a number given by prepare, a stop ends all the searches
+	// prepared before it, also those that did not start yet
+	private volatile int prepared = 0, stoppedUpTo = 0;
+	private int number;  // The number of the current search
+	private long deadline, nodes;
+	private int rootMove, rootScore, bestMove, bestScore, depthDone;
+	private MoveList lists[] = new MoveList[MAX_PLY + 1];  // [ply]
+	private int orders[][] = new int[MAX_PLY + 1][];  // Order of the moves of each list
+	private int killers[][] = new int[MAX_PLY + 1][2];  // Quiet moves that made a cut
+	private MoveGenerator generator = new MoveGenerator();  // Used again on each node, before going deeper
+	private Listener listener;  // null if nobody follows the depths
+	
+	public Search(TranspositionTable table) {
+		int i;
+		this.table = table;
+		for (i = 0; i <= MAX_PLY; i++) {
+			lists[i] = new MoveList();
+			orders[i] = new int[256];
+		}
+	}
+	
+	// The endgame tables give the exact score of their positions,
+	// and the move of the root when they have it
+	public void setTablebases(Tablebases tablebases) {
+		this.tablebases = tablebases;
+	}
+	
+	// Told of each depth that ends, on the thread of the search
+	public void setListener(Listener listener) {
+		this.listener = listener;
+	}
+	
+	// Find the best move for the color that moves on the board, the search
+	// stops after timeMs milliseconds or maxDepth moves. The board is not
+	// changed, the search is done on a copy. NO_MOVE if there are no moves
+	public int findBestMove(Board position, int timeMs, int maxDepth) {
+		return findBestMove(position, timeMs, maxDepth, prepare());
+	}
+	
+	// Like findBestMove, for a search prepared before (see prepare)
+	public int findBestMove(Board position, int timeMs, int maxDepth, int search) {
+		table.newSearch();
+		return iterate(position, timeMs, maxDepth, 1, search);
+	}
+	
+	// The number of a new search. It is taken on the thread that can stop the
+	// search, before the search is given to other thread: a stop after this
+	// call also stops that search, even if it did not start yet
+	public synchronized int prepare() {
+		return ++prepared;
+	}
+	
+	// The iterative deepening from firstDepth, the threads of ParallelSearch
+	// start at different depths. A stop of the search before this call also
+	// stops it, but the depth 1 is always ended, even without time, so the
+	// move played was searched
+	int iterate(Board position, int timeMs, int maxDepth, int firstDepth, int search) {
+		long start = System.nanoTime();
+		int depth, score;
+		number = search;
+		stopped = false;
+		board = position.cloneBoard();
+		deadline = start + timeMs * 1000000L;
+		nodes = 0;
+		bestMove = NO_MOVE;
+		bestScore = 0;
+		depthDone = 0;
+		if (tablebases != null && (bestMove = tablebases.getBestMove(board)) != NO_MOVE) {
+			bestScore = Tablebases.toScore(tablebases.probe(board), 0);
+			return bestMove;  // The perfect move, no search is needed
+		}
+		for (depth = firstDepth; depth <= Math.min(Math.max(1, maxDepth), MAX_PLY - 1); depth++) {
+			stoppable = depth > 1;
+			rootMove = NO_MOVE;
+			score = alphaBeta(-INFINITE, INFINITE, depth, 0);
+			if (rootMove != NO_MOVE) {  // Also a better move of a depth that was not ended
+				bestMove = rootMove;
+				bestScore = rootScore;
+			}
+			if (stopped)
+				break;
+			depthDone = depth;
+			if (listener != null)
+				listener.depthDone(depth, bestScore, principalVariation(depth));
+			if (number <= stoppedUpTo)
+				break;  // Stopped while the depth 1 was searched
+			if (Math.abs(score) > MATE - MAX_PLY)
+				break;  // A mate was found, more depth does not change it
+			if (System.nanoTime() - start > timeMs * 500000L)
+				break;  // The next depth would not be ended
+		}
+		return bestMove;
+	}
+	
+	// The best move and the answers expected after it, taken from the table
+	// while they are valid moves, at most depth moves
+	private int[] principalVariation(int depth) {
+		MoveList moves = new MoveList();
+		int line[] = new int[depth], length = 0, move = bestMove, i;
+		long data;
+		while (move != NO_MOVE && length < depth) {
+			line[length++] = move;
+			board.makeMove(move);
+			move = NO_MOVE;
+			data = table.probe(board.getKey());
+			if (data == TranspositionTable.NOT_FOUND || board.getRepetitions() > 0)
+				continue;
+			moves.clear();
+			generator.init(board, board.getTurn()).generateMoves(moves);
+			for (i = 0; i < moves.size(); i++)
+				if (moves.get(i) == TranspositionTable.getMove(data))
+					move = moves.get(i);
+		}
+		for (i = 0; i < length; i++)
+			board.unmakeMove();
+		return Arrays.copyOf(line, length);
+	}
+	
+	// Stop the search from other thread, findBestMove returns the best move found.
+	// The searches prepared before are also stopped
+	public synchronized void stop() {
+		stoppedUpTo = prepared;
+	}
+	
+	// Stop a search and those before it, but not the ones prepared after it
+	synchronized void stop(int search) {
+		stoppedUpTo = Math.max(stoppedUpTo, search);
+	}
+	
+	// The move and the score found by the last search
+	public int getBestMove() {
+		return bestMove;
+	}
+	
+	public int getScore() {
+		return bestScore;
+	}
+	
+	// The last depth that was searched completely
+	public int getDepth() {
+		return depthDone;
+	}
+	
+	public long getNodes() {
+		return nodes;
+	}
+	
+	public interface Listener {
+		// The best line of a depth that ended, the first move is the best move
+		void depthDone(int depth, int score, int pv[]);
+	}
+	
+	private int alphaBeta(int alpha, int beta, int depth, int ply) {
+		MoveList moves = lists[ply];
+		long data, key = board.getKey();
+		int i, move, score, best = -INFINITE, bestHere = NO_MOVE, tableMove = NO_MOVE, alphaStart = alpha;
+		if (ply > 0 && (board.getRepetitions() > 0 || board.fiftyMovesRule()))
+			return 0;  // A tied game
+		if (ply > 0 && tablebases != null && (score = tablebases.probe(board)) != Tablebase.NOT_FOUND)
+			return Tablebases.toScore(score, ply);  // The exact result of the endgame
+		data = table.probe(key);
+		if (data != TranspositionTable.NOT_FOUND) {
+			tableMove = TranspositionTable.getMove(data);
+			if (ply > 0 && TranspositionTable.getDepth(data) >= depth) {
+				score = fromTable(TranspositionTable.getScore(data), ply);
+				if (TranspositionTable.getBound(data) == TranspositionTable.EXACT
+						|| (TranspositionTable.getBound(data) == TranspositionTable.LOWER && score >= beta)
+						|| (TranspositionTable.getBound(data) == TranspositionTable.UPPER && score <= alpha))
+					return score;
+			}
+		}
+		generator.init(board, board.getTurn());
+		if (generator.inCheck())
+			depth++;  // A check is searched deeper, the answers are few
+		if (depth <= 0 || ply >= MAX_PLY)
+			return quiescence(alpha, beta, ply);
+		if (countNode())
+			return 0;
+		moves.clear();
+		generator.generateMoves(moves);
+		if (moves.size() == 0)  // Checkmate or stalemate
+			return generator.inCheck() ? -MATE + ply : 0;
+		orderMoves(moves, orders[ply], tableMove, ply);
+		for (i = 0; i < moves.size(); i++) {
+			move = nextMove(moves, orders[ply], i);
+			board.makeMove(move);
+			score = -alphaBeta(-beta, -alpha, depth - 1, ply + 1);
+			board.unmakeMove();
+			if (stopped)
+				return 0;
+			if (score > best) {
+				best = score;
+				bestHere = move;
+				if (ply == 0) {
+					rootMove = move;
+					rootScore = score;
+				}
+			}
+			if (score > alpha)
+				alpha = score;
+			if (alpha >= beta) {
+				if (Move.getEaten(move) == EnumPieces.NONE && killers[ply][0] != move) {
+					killers[ply][1] = killers[ply][0];
+					killers[ply][0] = move;
+				}
+				break;  // The opponent will not let us reach this position
+			}
+		}
+		table.store(key, bestHere, toTable(best, ply), depth, best >= beta ? TranspositionTable.LOWER
+				: best > alphaStart ? TranspositionTable.EXACT : TranspositionTable.UPPER);
+		return best;
+	}
+	
+	// At the end of the depth only the eats are searched, so the position
+	// is not evaluated in the middle of an exchange of pieces
+	private int quiescence(int alpha, int beta, int ply) {
+		MoveList moves = lists[ply];
+		int i, move, score, best;
+		if (countNode())
+			return 0;
+		best = Evaluation.evaluate(board);  // Not eating is also possible
+		if (best >= beta || ply >= MAX_PLY)
+			return best;
+		if (best > alpha)
+			alpha = best;
+		moves.clear();
+		generator.init(board, board.getTurn()).generateMoves(moves);
+		orderMoves(moves, orders[ply], NO_MOVE, ply);
+		for (i = 0; i < moves.size(); i++) {
+			move = nextMove(moves, orders[ply], i);
+			if (Move.getEaten(move) == EnumPieces.NONE && Move.getPromotion(move) != EnumPieces.QUEEN)
+				break;  // The eats are first on the order
+			board.makeMove(move);
+			score = -quiescence(-beta, -alpha, ply + 1);
+			board.unmakeMove();
+			if (stopped)
+				return 0;
+			if (score > best)
+				best = score;
+			if (score > alpha)
+				alpha = score;
+			if (alpha >= beta)
+				break;
+		}
+		return best;
+	}
+	
+	// Count a node and check the time, true if the search must stop
+	private boolean countNode() {
+		nodes++;
+		if (stoppable && (nodes & CHECK_TIME) == 0 && (System.nanoTime() >= deadline || number <= stoppedUpTo))
+			stopped = true;
+		return stopped;
+	}
+	
+	// The best move of the table goes first, then the eats of the most valuable
+	// pieces with the least valuable pieces, then the killers and the rest
+	private void orderMoves(MoveList moves, int order[], int tableMove, int ply) {
+		int i, move;
+		for (i = 0; i < moves.size(); i++) {
+			move = moves.get(i);
+			if (move == tableMove)
+				order[i] = 1000000;
+			else if (Move.getEaten(move) != EnumPieces.NONE || Move.getPromotion(move) == EnumPieces.QUEEN)
+				order[i] = 100000 + 10 * Evaluation.VALUES[Move.getEaten(move).ordinal()]
+						+ Evaluation.VALUES[Move.getPromotion(move).ordinal()]
+						- Evaluation.VALUES[Move.getPiece(move).ordinal()] / 10;
+			else if (move == killers[ply][0])
+				order[i] = 90000;
+			else if (move == killers[ply][1])
+				order[i] = 80000;
+			else
+				order[i] = 0;
+		}
+	}
+	
+	// Move the best of the remaining moves to the position i and return it,
+	// the moves after a cut are never sorted
+	private static int nextMove(MoveList moves, int order[], int i) {
+		int j, best = i, swap;
+		for (j = i + 1; j < moves.size(); j++)
+			if (order[j] > order[best])
+				best = j;
+		if (best != i) {
+			swap = order[i];
+			order[i] = order[best];
+			order[best] = swap;
+			moves.swap(i, best);
+		}
+		return moves.get(i);
+	}
+	
+	// The mates are saved on the table as distance from the position, not from the root
+	private static int toTable(int score, int ply) {
+		if (score > MATE - MAX_PLY)
+			return score + ply;
+		if (score < -MATE + MAX_PLY)
+			return score - ply;
+		return score;
+	}
+	
+	private static int fromTable(int score, int ply) {
+		if (score > MATE - MAX_PLY)
+			return score - ply;
+		if (score < -MATE + MAX_PLY)
+			return score + ply;
+		return score;
+	}
+}
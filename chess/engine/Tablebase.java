@@ -0,0 +1,265 @@
+package chess.engine;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import chess.board.*;
+import chess.pieces.EnumPieces;
+
+public class Tablebase {
+	// An endgame table has the exact result of all positions of a material,
+	// like "KQK" (white king and queen against the black king). A position is
+	// a number (see index) made with the squares of the pieces, in the order
+	// of the name, and the color that moves. The value of a position is 0 for
+	// a draw, or d + 1 when the game ends with a mate after d plies of perfect
+	// play: the color that moves wins if d is odd and loses if d is even.
+	// The values use the bits that the longest mate needs, one after other,
+	// and the file is mapped on memory (see chess.tools.TablebaseGenerator).
+	// The same table is used with the colors changed, "KKQ" is read on "KQK"
+	public static final int MAGIC = 0x43485442, VERSION = 1;  // "CHTB"
+	public static final int HEADER = 32;  // Magic, version, bits and the name
+	public static final int MAX_PIECES = 4;
+	public static final int NOT_FOUND = -1, DRAW = 0;
+	private static final String LETTERS = "QRBNP";  // Order of the pieces after each king
+	private static final EnumPieces TYPES[] = {EnumPieces.QUEEN, EnumPieces.ROOK,
+			EnumPieces.BISHOP, EnumPieces.KNIGHT, EnumPieces.PAWN};
+	private static final int VALUES[] = {9, 5, 3, 3, 1};
+	private String name;
+	private EnumPieces types[];  // [piece] in the order of the name
+	private EnumColors colors[];
+	private long entries;
+	private int bits;
+	private ByteBuffer values;  // Little endian, so the bits of a value are together
+	
+	// A table without values, to create them (see setValues)
+	public Tablebase(String name) {
+		int i, pieces;
+		this.name = name = canonical(name);
+		pieces = name.length();
+		types = new EnumPieces[pieces];
+		colors = new EnumColors[pieces];
+		types[0] = EnumPieces.KING;
+		colors[0] = EnumColors.WHITE;
+		for (i = 1; i < pieces; i++) {
+			types[i] = name.charAt(i) == 'K' ? EnumPieces.KING : TYPES[LETTERS.indexOf(name.charAt(i))];
+			colors[i] = name.indexOf('K', 1) <= i ? EnumColors.BLACK : EnumColors.WHITE;
+		}
+		entries = 2L << (6 * pieces);
+	}
+	
+	// Open a table file, the values are not read, only mapped
+	public static Tablebase load(Path path) throws IOException {
+		ByteBuffer buffer;
+		Tablebase table;
+		byte name[] = new byte[16];
+		int length = 0;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			if (channel.size() < HEADER)
+				throw new IOException("This is not an endgame table");
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());  // The map stays after the close
+		}
+		if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+			throw new IOException("This is not an endgame table of this version");
+		buffer.get(16, name);
+		while (length < name.length && name[length] != 0)
+			length++;
+		try {
+			table = new Tablebase(new String(name, 0, length, StandardCharsets.US_ASCII));
+		}
+		catch (IllegalArgumentException e) {
+			throw new IOException("Wrong endgame table: " + e.getMessage());
+		}
+		table.setValues(buffer.slice(HEADER, buffer.capacity() - HEADER), buffer.getInt(8));
+		return table;
+	}
+	
+	// Save the header and the values
+	public void save(Path path) throws IOException {
+		ByteBuffer header = ByteBuffer.allocate(HEADER);
+		header.putInt(MAGIC).putInt(VERSION).putInt(bits).putInt(0);
+		header.put(name.getBytes(StandardCharsets.US_ASCII)).position(HEADER).flip();
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+				StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			while (header.hasRemaining())
+				channel.write(header);
+			values.rewind();
+			while (values.hasRemaining())
+				channel.write(values);
+			values.rewind();
+		}
+	}
+	
+	// The values of all positions with the bits of each one (see pack)
+	public void setValues(ByteBuffer values, int bits) {
+		if (bits < 1 || bits > 8 || values.capacity() < bytes(entries, bits))
+			throw new IllegalArgumentException("Wrong values for " + name);
+		this.values = values.order(ByteOrder.LITTLE_ENDIAN);
+		this.bits = bits;
+	}
+	
+	// Put the values (0 to 255) together with the bits of the biggest one
+	public static ByteBuffer pack(byte codes[], int bits) {
+		ByteBuffer values = ByteBuffer.allocate((int) bytes(codes.length, bits)).order(ByteOrder.LITTLE_ENDIAN);
+		long bit = 0, word;
+		int i, offset;
+		for (i = 0; i < codes.length; i++, bit += bits) {
+			offset = (int) (bit >>> 3);
+			word = values.getLong(offset) | (long) (codes[i] & 0xFF) << (bit & 7);
+			values.putLong(offset, word);
+		}
+		return values;
+	}
+	
+	// 8 bytes more, so the last value is read with a long
+	private static long bytes(long entries, int bits) {
+		return (entries * bits + 7) / 8 + 8;
+	}
+	
+	// The bits needed for the values up to the code
+	public static int bitsFor(int code) {
+		return Math.max(1, 32 - Integer.numberOfLeadingZeros(code));
+	}
+	
+	// The name with the strongest side first and the pieces in order:
+	// "KKQ" is "KQK" and "KNQK" is "KQNK"
+	public static String canonical(String name) {
+		String white, black;
+		int second = name.indexOf('K', 1);
+		if (! name.startsWith("K") || second < 0 || name.indexOf('K', second + 1) >= 0
+				|| name.length() > MAX_PIECES)
+			throw new IllegalArgumentException("Wrong material: " + name);
+		white = sort(name.substring(1, second), name);
+		black = sort(name.substring(second + 1), name);
+		if (value(black) > value(white) || (value(black) == value(white) && black.compareTo(white) < 0))
+			return "K" + black + "K" + white;
+		return "K" + white + "K" + black;
+	}
+	
+	private static String sort(String pieces, String name) {
+		StringBuilder sorted = new StringBuilder();
+		int i, j;
+		for (i = 0; i < LETTERS.length(); i++)
+			for (j = 0; j < pieces.length(); j++)
+				if (pieces.charAt(j) == LETTERS.charAt(i))
+					sorted.append(LETTERS.charAt(i));
+		if (sorted.length() != pieces.length())
+			throw new IllegalArgumentException("Wrong material: " + name);
+		return sorted.toString();
+	}
+	
+	private static int value(String pieces) {
+		int i, value = 0;
+		for (i = 0; i < pieces.length(); i++)
+			value += VALUES[LETTERS.indexOf(pieces.charAt(i))];
+		return value;
+	}
+	
+	// The material of the board with the same form of the names
+	public static String getMaterial(Board board) {
+		return "K" + getPieces(board, EnumColors.WHITE) + "K" + getPieces(board, EnumColors.BLACK);
+	}
+	
+	private static String getPieces(Board board, EnumColors color) {
+		StringBuilder pieces = new StringBuilder();
+		int i, j;
+		for (i = 0; i < TYPES.length; i++)
+			for (j = Long.bitCount(board.getBitboard(TYPES[i], color)); j > 0; j--)
+				pieces.append(LETTERS.charAt(i));
+		return pieces.toString();
+	}
+	
+	// A number with the count of each piece of each color, to compare
+	// the material of a board without creating strings
+	public static int signature(Board board) {
+		int i, signature = 0;
+		for (i = 0; i < TYPES.length; i++) {
+			signature |= Long.bitCount(board.getBitboard(TYPES[i], EnumColors.WHITE)) << (3 * i);
+			signature |= Long.bitCount(board.getBitboard(TYPES[i], EnumColors.BLACK)) << (3 * i + 15);
+		}
+		return signature;
+	}
+	
+	// The signature of the table, with the colors changed if flipped
+	public int signature(boolean flipped) {
+		int i, signature = 0;
+		for (i = 0; i < types.length; i++)
+			if (types[i] != EnumPieces.KING)
+				signature += 1 << (3 * (LETTERS.indexOf(name.charAt(i)))
+						+ ((colors[i] == EnumColors.BLACK) != flipped ? 15 : 0));
+		return signature;
+	}
+	
+	public String getName() {
+		return name;
+	}
+	
+	public int getPieces() {
+		return types.length;
+	}
+	
+	public EnumPieces getType(int piece) {
+		return types[piece];
+	}
+	
+	public EnumColors getColor(int piece) {
+		return colors[piece];
+	}
+	
+	public long getEntries() {
+		return entries;
+	}
+	
+	public int getBits() {
+		return bits;
+	}
+	
+	// The number of the position: the color that moves on the first bit,
+	// then 6 bits with the square of each piece
+	public static long index(int squares[], EnumColors turn) {
+		long index = turn.ordinal();
+		int i;
+		for (i = 0; i < squares.length; i++)
+			index |= (long) squares[i] << (1 + 6 * i);
+		return index;
+	}
+	
+	// The square of a piece on the position
+	public static int getSquare(long index, int piece) {
+		return (int) (index >>> (1 + 6 * piece)) & 63;
+	}
+	
+	public int getValue(long index) {
+		long bit = index * bits;
+		return (int) (values.getLong((int) (bit >>> 3)) >>> (bit & 7)) & ((1 << bits) - 1);
+	}
+	
+	// The value of the board, that must have the material of the table
+	// (flipped if it has the colors changed). The pieces of the same type
+	// are taken in the order of their squares
+	public int probe(Board board, boolean flipped) {
+		long index = 0, pieces = 0;
+		EnumColors color, turn = board.getTurn();
+		int i, square;
+		if (flipped)
+			turn = turn == EnumColors.WHITE ? EnumColors.BLACK : EnumColors.WHITE;
+		index |= turn.ordinal();
+		for (i = 0; i < types.length; i++) {
+			if (i == 0 || types[i] != types[i - 1] || colors[i] != colors[i - 1]) {
+				color = colors[i];
+				if (flipped)
+					color = color == EnumColors.WHITE ? EnumColors.BLACK : EnumColors.WHITE;
+				pieces = board.getBitboard(types[i], color);
+			}
+			square = Long.numberOfTrailingZeros(pieces);
+			pieces &= pieces - 1;
+			if (flipped)
+				square ^= 56;  // The same square seen from the other side
+			index |= (long) square << (1 + 6 * i);
+		}
+		return getValue(index);
+	}
+}
@@ -0,0 +1,129 @@
+package chess.engine;
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+import chess.board.*;
+import chess.rules.MoveGenerator;
+
+public class Tablebases {
+	// The endgame tables of a folder, one file "<material>.tb" for each material
+	// (see Tablebase). A position is found by its material on the tables as it
+	// is or with the colors changed. The tables are only read, so the same
+	// object is used by all threads of the search
+	public static final String EXTENSION = ".tb";
+	private Tablebase tables[] = new Tablebase[0];
+	private int signatures[] = new int[0], flippedSignatures[] = new int[0];
+	private int maxPieces = 0;
+	
+	public Tablebases() {
+	}
+	
+	// Open all tables of the folder, there are no tables if it does not exist
+	public static Tablebases open(String folder) throws IOException {
+		Tablebases tablebases = new Tablebases();
+		Path path = Paths.get(folder);
+		if (! Files.isDirectory(path))
+			return tablebases;
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(path, "*" + EXTENSION)) {
+			for (Path file : files)
+				tablebases.add(Tablebase.load(file));
+		}
+		return tablebases;
+	}
+	
+	// The arrays are replaced, so a probe of other thread does not see them half done
+	public synchronized void add(Tablebase table) {
+		int count = tables.length + 1;
+		int newSignatures[] = Arrays.copyOf(signatures, count), newFlipped[] = Arrays.copyOf(flippedSignatures, count);
+		Tablebase newTables[] = Arrays.copyOf(tables, count);
+		newTables[count - 1] = table;
+		newSignatures[count - 1] = table.signature(false);
+		newFlipped[count - 1] = table.signature(true);
+		tables = newTables;
+		flippedSignatures = newFlipped;
+		signatures = newSignatures;
+		maxPieces = Math.max(maxPieces, table.getPieces());
+	}
+	
+	public int size() {
+		return tables.length;
+	}
+	
+	public int getMaxPieces() {
+		return maxPieces;
+	}
+	
+	// The table of the material, null if there is not
+	public Tablebase get(String material) {
+		String name;
+		try {
+			name = Tablebase.canonical(material);
+		}
+		catch (IllegalArgumentException e) {
+			return null;
+		}
+		for (Tablebase table : tables)
+			if (table.getName().equals(name))
+				return table;
+		return null;
+	}
+	
+	// The value of the position (see Tablebase), NOT_FOUND if there is not
+	// a table for its material or the position has castling rights
+	public int probe(Board board) {
+		Tablebase current[] = tables;
+		int i, signature, normal[] = signatures, flipped[] = flippedSignatures;
+		if (Long.bitCount(board.getOccupied()) > maxPieces || board.getCastlingRights() != 0)
+			return Tablebase.NOT_FOUND;
+		signature = Tablebase.signature(board);
+		for (i = 0; i < Math.min(current.length, normal.length); i++) {
+			if (normal[i] == signature)
+				return current[i].probe(board, false);
+			if (flipped[i] == signature)
+				return current[i].probe(board, true);
+		}
+		return Tablebase.NOT_FOUND;
+	}
+	
+	// The score of a value for the search, the mate is d plies after the ply
+	public static int toScore(int value, int ply) {
+		int mate;
+		if (value == Tablebase.DRAW)
+			return 0;
+		mate = Search.MATE - Math.min(ply + value - 1, Search.MAX_PLY - 1);  // Still a mate for the search
+		return (value - 1) % 2 == 1 ? mate : -mate;
+	}
+	
+	// The perfect move of the position: the fastest mate when it wins, a move
+	// that keeps the draw, or the longest defense when it loses.
+	// Search.NO_MOVE if the position or a move is not on the tables
+	public int getBestMove(Board board) {
+		MoveList moves = new MoveList();
+		int i, value, order, best = Search.NO_MOVE, bestOrder = Integer.MIN_VALUE;
+		if (probe(board) == Tablebase.NOT_FOUND)
+			return Search.NO_MOVE;
+		new MoveGenerator(board, board.getTurn()).generateMoves(moves);
+		for (i = 0; i < moves.size(); i++) {
+			board.makeMove(moves.get(i));
+			value = probe(board);
+			board.unmakeMove();
+			if (value == Tablebase.NOT_FOUND)
+				return Search.NO_MOVE;
+			if (value == Tablebase.DRAW)
+				order = 0;
+			else if ((value - 1) % 2 == 0)  // The opponent loses
+				order = 1000 - value;
+			else
+				order = -1000 + value;
+			if (order > bestOrder) {
+				bestOrder = order;
+				best = moves.get(i);
+			}
+		}
+		return best;
+	}
+}
@@ -0,0 +1,143 @@
+package chess.engine;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+public class TranspositionTable {
+	// The table saves the results of the positions already searched, so a
+	// position reached by other order of moves is not searched again. It can
+	// be shared by several search threads without locks: each entry is 2 longs,
+	// the data and the key mixed with the data (key ^ data). If two threads
+	// write an entry at the same time and the longs are of different writes,
+	// the key does not match and the entry is taken as empty.
+	// The data of an entry has these bits:
+	// 0-22 best move (see Move), 23-38 score, 39-46 depth, 47-48 bound,
+	// 49-56 age (search that wrote it) and 63 is always 1 (used entry)
+	public static final int EXACT = 0, LOWER = 1, UPPER = 2;  // The score is exact or a bound
+	public static final long NOT_FOUND = 0;
+	private static final int BUCKET = 4;  // Entries that a position can use, next to each other
+	private static final long USED = 1L << 63;
+	private long table[];  // [2 * entry] data, [2 * entry + 1] key ^ data
+	private int bucketMask;
+	private int age = 0;
+	private LongAdder hits = new LongAdder(), misses = new LongAdder(), collisions = new LongAdder();
+	
+	// The size is rounded down to a power of 2, at least one bucket
+	public TranspositionTable(int sizeMB) {
+		long entries = ((long) Math.max(sizeMB, 1) << 20) / 16;
+		int buckets = 1;
+		while ((long) buckets * 2 * BUCKET <= entries && buckets < (1 << 26))
+			buckets *= 2;
+		table = new long[buckets * BUCKET * 2];
+		bucketMask = buckets - 1;
+	}
+	
+	// Remove all entries, for example for a new game
+	public void clear() {
+		Arrays.fill(table, 0);
+		age = 0;
+		hits.reset();
+		misses.reset();
+		collisions.reset();
+	}
+	
+	// The entries of old searches are replaced before than the new ones
+	public void newSearch() {
+		age = (age + 1) & 255;
+	}
+	
+	// Get the data saved for the position, NOT_FOUND if it is not on the table
+	public long probe(long key) {
+		int first = bucketIndex(key), i;
+		long data;
+		for (i = first; i < first + 2 * BUCKET; i += 2) {
+			data = table[i];
+			if (data != 0 && (table[i + 1] ^ data) == key) {
+				hits.increment();
+				return data;
+			}
+		}
+		misses.increment();
+		return NOT_FOUND;
+	}
+	
+	// Save the result of a position. The entry of the same position is replaced,
+	// otherwise the entry of the bucket with less depth, the old entries count
+	// as if they had 8 less depth for each search since they were written.
+	// The depth must be between 0 and 255 and the score must fit on a short
+	public void store(long key, int move, int score, int depth, int bound) {
+		int first = bucketIndex(key), i, replace = first, value, lowest = Integer.MAX_VALUE;
+		long data, newData;
+		for (i = first; i < first + 2 * BUCKET; i += 2) {
+			data = table[i];
+			if (data == 0 || (table[i + 1] ^ data) == key) {
+				replace = i;  // An empty entry or the same position
+				break;
+			}
+			value = getDepth(data) - 8 * ((age - getAge(data)) & 255);
+			if (value < lowest) {
+				lowest = value;
+				replace = i;
+			}
+		}
+		data = table[replace];
+		if (data != 0 && (table[replace + 1] ^ data) != key)
+			collisions.increment();  // Other position is lost
+		else if (data != 0 && move == 0)
+			move = getMove(data);  // Keep the best move found before
+		newData = USED | (move & 0x7FFFFFL) | ((long) (score & 0xFFFF) << 23)
+				| ((long) (depth & 255) << 39) | ((long) bound << 47) | ((long) age << 49);
+		table[replace] = newData;
+		table[replace + 1] = key ^ newData;
+	}
+	
+	private int bucketIndex(long key) {
+		return ((int) (key ^ (key >>> 32)) & bucketMask) * BUCKET * 2;
+	}
+	
+	public static int getMove(long data) {
+		return (int) (data & 0x7FFFFF);
+	}
+	
+	public static int getScore(long data) {
+		return (short) (data >>> 23);
+	}
+	
+	public static int getDepth(long data) {
+		return (int) (data >>> 39) & 255;
+	}
+	
+	public static int getBound(long data) {
+		return (int) (data >>> 47) & 3;
+	}
+	
+	private static int getAge(long data) {
+		return (int) (data >>> 49) & 255;
+	}
+	
+	public long getHits() {
+		return hits.sum();
+	}
+	
+	public long getMisses() {
+		return misses.sum();
+	}
+	
+	// Positions that were removed to save other position
+	public long getCollisions() {
+		return collisions.sum();
+	}
+	
+	// Entries of the table
+	public int getSize() {
+		return table.length / 2;
+	}
+	
+	// Per mil of the first 1000 entries used by the current search
+	public int getUsage() {
+		int i, used = 0, count = Math.min(1000, getSize());
+		for (i = 0; i < count; i++)
+			if (table[2 * i] != 0 && getAge(table[2 * i]) == age)
+				used++;
+		return used * 1000 / count;
+	}
+}
@@ -0,0 +1,5 @@
+package chess.game;
+
+public enum EnumStatus {
+	PLAYING, CHECKMATE, STALEMATE, REPETITION, FIFTY_MOVES, DRAWN_ENDGAME;
+}
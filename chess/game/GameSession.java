@@ -0,0 +1,202 @@
+package chess.game;
+import chess.board.*;
+import chess.engine.Search;
+import chess.engine.Tablebase;
+import chess.engine.Tablebases;
+import chess.pieces.EnumPieces;
+import chess.pieces.Piece;
+import chess.rules.LegalMoves;
+
+public class GameSession {
+	// The state of a game without window: the board, the history of the moves
+	// (the undone moves are kept to be redone) and the valid moves of the
+	// position, that are generated once when they are needed. All methods lock
+	// the session, so a game can be used by the threads of its players while
+	// the other games are used by other threads (see chess.server.GameServer).
+	// Each change also publishes an immutable snapshot of the position, the
+	// threads that only read it (like the painting of the window) use it
+	// without waiting for the lock
+	private Board board = new Board();
+	private GameRecord moves = new GameRecord();  // History of the game, 2 bytes for each move
+	private int movesLen = 0;  // Moves made, the moves after them can be redone
+	private LegalMoves legal;  // null until they are needed
+	private Tablebases tablebases;  // null without endgame tables
+	private volatile Snapshot snapshot;  // The current position, replaced on each change
+	
+	public GameSession() {
+		this(null);
+	}
+	
+	// The tables end the games that nobody can win (see getStatus)
+	public GameSession(Tablebases tablebases) {
+		this.tablebases = tablebases;
+		restart();
+	}
+	
+	// A new game from the initial position
+	public synchronized void restart() {
+		board.setDefaultBoard();
+		moves.clear();
+		movesLen = 0;
+		legal = null;
+		snapshot = Snapshot.of(board);
+	}
+	
+	// A new game from a position, the board does not change if the FEN is wrong
+	public synchronized void restart(String fen) {
+		Board position = new Board();
+		Fen.load(position, fen);
+		board = position;
+		moves.clear();
+		moves.setFen(fen);
+		movesLen = 0;
+		legal = null;
+		snapshot = Snapshot.of(board);
+	}
+	
+	public synchronized EnumColors getTurn() {
+		return board.getTurn();
+	}
+	
+	public synchronized Piece getPiece(int x, int y) {
+		return board.getPiece(x, y);
+	}
+	
+	// The current position without locking the session, it never changes
+	public Snapshot getSnapshot() {
+		return snapshot;
+	}
+	
+	// A copy of the board for other thread, like the search of the computer
+	public synchronized Board getBoard() {
+		return board.cloneBoard();
+	}
+	
+	public synchronized String getFen() {
+		return Fen.toFen(board, 1 + movesLen / 2);
+	}
+	
+	// Moves made until the current position
+	public synchronized int getMoveCount() {
+		return movesLen;
+	}
+	
+	// Moves saved on the history, also the undone ones
+	public synchronized int getHistorySize() {
+		return moves.size();
+	}
+	
+	// The compact move that reached the position (see Move.compact), Search.NO_MOVE on the first one
+	public synchronized int getLastMove() {
+		return movesLen == 0 ? Search.NO_MOVE : moves.get(movesLen - 1);
+	}
+	
+	// The valid moves of the position, generated once
+	public synchronized LegalMoves getLegalMoves() {
+		if (legal == null)
+			legal = new LegalMoves(board);
+		return legal;
+	}
+	
+	// Add the valid moves of the piece on the square to the list
+	public synchronized void getMoves(int square, MoveList list) {
+		getLegalMoves().getMoves(square, list);
+	}
+	
+	// The valid move from a square to other, Search.NO_MOVE if it is not valid.
+	// A coronation needs the piece, NONE for the other moves
+	public synchronized int findMove(int from, int to, EnumPieces promotion) {
+		LegalMoves current = getLegalMoves();
+		int i, move;
+		for (i = 0; i < current.size(); i++) {
+			move = current.get(i);
+			if (Move.getFrom(move) == from && Move.getTo(move) == to && Move.getPromotion(move) == promotion)
+				return move;
+		}
+		return Search.NO_MOVE;
+	}
+	
+	// The valid move with the text of the coordinates, like "e2e4" or "e7e8q"
+	public synchronized int findMove(String text) {
+		LegalMoves current = getLegalMoves();
+		int i;
+		for (i = 0; i < current.size(); i++)
+			if (Move.toCoordinates(current.get(i)).equals(text))
+				return current.get(i);
+		return Search.NO_MOVE;
+	}
+	
+	// Make a valid move, the undone moves can not be redone anymore.
+	// False if the move is not valid on the position or the game ended
+	public synchronized boolean play(int move) {
+		LegalMoves current = getLegalMoves();
+		int i;
+		if (getStatus() != EnumStatus.PLAYING)
+			return false;
+		for (i = 0; i < current.size(); i++) {
+			if (current.get(i) != move)
+				continue;
+			moves.truncate(movesLen);  // Remove unnecessary saved moves
+			moves.add(move);
+			movesLen++;
+			board.makeMove(move);
+			legal = null;
+			snapshot = snapshot.play(move);
+			return true;
+		}
+		return false;
+	}
+	
+	// Find, check and make the move with the text of the coordinates (like
+	// "e2e4" or "e7e8q") with one lock, so other thread can not change the
+	// position between them, and return the status after the move.
+	// null if the move is not valid, an exception if the game ended
+	public synchronized EnumStatus play(String text) {
+		if (getStatus() != EnumStatus.PLAYING)
+			throw new IllegalStateException("The game is over");
+		if (! play(findMove(text)))
+			return null;
+		return getStatus();
+	}
+	
+	// Undo the last move, false if there are no moves
+	public synchronized boolean back() {
+		if (movesLen <= 0)
+			return false;
+		movesLen--;
+		board.unmakeMove();
+		legal = null;
+		snapshot = snapshot.getParent();  // There is always a parent after a move
+		return true;
+	}
+	
+	// Redo the next move of the history, false if it is the last one
+	public synchronized boolean next() {
+		int move;
+		if (movesLen >= moves.size())
+			return false;
+		move = moves.getMove(board, movesLen);  // The board is on the position before the move
+		board.makeMove(move);
+		movesLen++;
+		legal = null;
+		snapshot = snapshot.play(move);
+		return true;
+	}
+	
+	// The game ends with the mate or a draw, on a checkmate the color
+	// that moves (getTurn) loses
+	public synchronized EnumStatus getStatus() {
+		LegalMoves current = getLegalMoves();
+		if (current.isCheckmate())
+			return EnumStatus.CHECKMATE;
+		if (current.isStalemate())
+			return EnumStatus.STALEMATE;
+		if (board.threefoldRepetition())  // The same position for the third time
+			return EnumStatus.REPETITION;
+		if (board.fiftyMovesRule())  // 50 moves without eats or pawn moves
+			return EnumStatus.FIFTY_MOVES;
+		if (tablebases != null && tablebases.probe(board) == Tablebase.DRAW)  // Nobody can win with perfect play
+			return EnumStatus.DRAWN_ENDGAME;
+		return EnumStatus.PLAYING;
+	}
+}
@@ -1,18 +1,12 @@
 package chess.pieces;
 import java.util.ArrayList;
 import chess.board.*;
-import chess.rules.Rules;
+import chess.rules.MoveGenerator;
 
 public class King extends Piece {
-	private boolean hasBeenMoved = false;
 	
-	public King(int x, EnumColors color) {
-		super(x, color == EnumColors.WHITE ? Board.LOW_LIMIT : Board.HIGH_LIMIT, color);
-	}
-	
-	public King(int x, int y, EnumColors color, boolean hasBeenMoved) {
-		super(x, y, color);
-		this.hasBeenMoved = hasBeenMoved;
+	King(EnumColors color) {
+		super(color);
 	}
 	
 	@Override
@@ -20,51 +14,29 @@ public class King extends Piece {
 		return EnumPieces.KING;
 	}
 	
-	// A castling only can be made if the king has not been moved
-	@Override
-	public void setHasBeenMoved() {
-		hasBeenMoved = true;
-	}
-	
-	@Override
-	public King clone() {
-		return new King(getX(), getY(), getColor(), hasBeenMoved);
-	}
-	
 	// This function return all possible moves of this piece as pairs (x, y)
 	@Override
-	public ArrayList<int[]> getValidMoves(Board board, boolean nextMove) {
-		int x, y;
-		EnumColors color = getColor();
-		Piece piece;
+	public ArrayList<int[]> getValidMoves(Board board, int x, int y, boolean nextMove) {
 		ArrayList<int[]> validMoves = new ArrayList<>();
-		for (int [] move : traditionalMove(board, nextMove))
-			validMoves.add(move);		
-		if (hasBeenMoved)
-			return validMoves;  // King should not be moved for castling
-		if (nextMove)
-			if (Rules.kingInDanger(board, color))
-				return validMoves;  // King should not be threatened for castling
-		for (y = Board.LOW_LIMIT; y <= Board.HIGH_LIMIT; y++) {
-			for (x = Board.LOW_LIMIT; x <= Board.HIGH_LIMIT; x++) {
-				piece = board.getPiece(x, y);  // Search the rooks of the same color
-				if (piece == null)
-					continue;
-				if (piece.getType() != EnumPieces.ROOK || piece.getColor() != color)
-					continue;
-				for (int [] move : castlingMove(board, piece, nextMove))
-					validMoves.add(move);
-			}
-		}
+		if (nextMove)  // Only the moves that do not leave the own king attacked
+			return MoveGenerator.getValidMoves(board, x, y);
+		for (int [] move : traditionalMove(board, x, y))
+			validMoves.add(move);
+		// The board saves if the king and each rook have been moved
+		if (board.hasCastlingRight(getColor(), false))
+			for (int [] move : castlingMove(board, x, y, -1))
+				validMoves.add(move);
+		if (board.hasCastlingRight(getColor(), true))
+			for (int [] move : castlingMove(board, x, y, 1))
+				validMoves.add(move);
 		return validMoves;
 	}
 	
-	private ArrayList<int[]> traditionalMove(Board board, boolean nextMove) {
-		int dx, dy, x = getX(), y = getY();
+	private ArrayList<int[]> traditionalMove(Board board, int x, int y) {
+		int dx, dy;
 		EnumColors color = getColor();
 		Piece nextTo;
 		ArrayList<int[]> validMoves = new ArrayList<>();
-		Board boardCopy;
 		for (dx = -1; dx < 2; dx++) {
 			for (dy = -1; dy < 2; dy++) {
 				if (! Board.positionInsideBoard(x + dx, y + dy))
@@ -75,49 +47,31 @@ public class King extends Piece {
 				if (nextTo != null)  // There is a piece on this position
 					if (nextTo.getColor() == color)
 						continue;  // They are the same color, can not eat
-				if (nextMove) {
-					boardCopy = board.cloneBoard();
-					boardCopy.movePiece(x, y, x + dx, y + dy);
-					if (Rules.kingInDanger(boardCopy, color))
-						continue;  // King would be attacked
-				}
 				validMoves.add(new int[] {x + dx, y + dy});
 			}
 		}
 		return validMoves;
 	}
 	
-	private ArrayList<int[]> castlingMove(Board board, Piece rook, boolean nextMove) {
-		int xKing = getX(), yKing = getY(), i;
+	// j = -1 for the rook on the left side, 1 for the right side
+	private ArrayList<int[]> castlingMove(Board board, int xKing, int yKing, int j) {
 		ArrayList<int[]> validMove = new ArrayList<>();
-		if (rook.getHasBeenMoved())  // Rook should not be moved for castling
-			return validMove;
-		if (! freeWayCastling(board, rook, nextMove))
+		if (! freeWayCastling(board, xKing, yKing, j))
 			return validMove;  // There is a square occupied or attacked between king and rook
-		// Check if the king should be moved to left or right
-		i = xKing > rook.getX() ? -1 : 1;
-		validMove.add(new int[] {xKing + 2*i, yKing});
+		validMove.add(new int[] {xKing + 2*j, yKing});
 		return validMove;
 	}
 	
 	// This function checks if there are not pieces between the king
-	// and the rook. It also checks if the king is safe during its
-	// whole move. This 2 conditions are necessary to do a castling
-	private boolean freeWayCastling(Board board, Piece rook, boolean nextMove) {
-		int xKing = getX(), yKing = getY(), i, j;
-		EnumColors color = getColor();
-		Board boardCopy;		
-		// This is for check the left or right side
-		j = xKing > rook.getX() ? -1 : 1;
-		for (i = 1; i < 3; i++) {  // Check the squares on the king path
+	// and the rook. The valid moves also check that the king is safe
+	// during its whole move (see MoveGenerator)
+	private boolean freeWayCastling(Board board, int xKing, int yKing, int j) {
+		int i, xRook = j > 0 ? Board.HIGH_LIMIT : Board.LOW_LIMIT;
+		if (! Board.positionInsideBoard(xKing + 2*j, yKing))
+			return false;
+		for (i = 1; xKing + i*j != xRook; i++) {  // Check all squares until the rook
 			if (board.getPiece(xKing + i*j, yKing) != null)
 				return false;  // There is a piece between king and rook
-			if (nextMove) {
-				boardCopy = board.cloneBoard();
-				boardCopy.movePiece(xKing, yKing, xKing + i*j, yKing);
-				if (Rules.kingInDanger(boardCopy, color))
-					return false;  // There is an attacked square
-			}
 		}
 		return true;
 	}
@@ -1,21 +1,12 @@
 package chess.pieces;
 import java.util.ArrayList;
 import chess.board.*;
-import chess.rules.Rules;
+import chess.rules.MoveGenerator;
 
 public class Pawn extends Piece {
-	private boolean hasBeenMoved = false;
-	private boolean doubleBox = false;
-	private int movesSinceDB = 0;
 	
-	public Pawn(int x, EnumColors color) {
-		super(x, color == EnumColors.WHITE ? Board.LOW_LIMIT + 1 : Board.HIGH_LIMIT - 1, color);
-	}
-	
-	public Pawn(int x, int y, EnumColors color, boolean hasBeenMoved, boolean doubleBox, int movesSinceDB) {
-		super(x, y, color);
-		this.hasBeenMoved = hasBeenMoved;
-		this.doubleBox = doubleBox;
+	Pawn(EnumColors color) {
+		super(color);
 	}
 	
 	@Override
@@ -23,73 +14,38 @@ public class Pawn extends Piece {
 		return EnumPieces.PAWN;
 	}
 	
-	// A pawn can do a double box move only its first move
-	@Override
-	public boolean getHasBeenMoved() {
-		return hasBeenMoved;
-	}
-	
-	@Override
-	public void setHasBeenMoved() {
-		hasBeenMoved = true;
-	}
-	
-	// This is for know if the pawn moved 2 boxes its first move
-	@Override
-	public boolean getDoubleBox() {
-		return doubleBox;
-	}
-	
-	@Override
-	public void setDoubleBox() {
-		doubleBox = true;
-	}
-	
-	// A pawn can eat by pass another pawn only on the next move to
-	// the oponent's double box move
 	@Override
-	public int getMovesSinceDB() {
-		return movesSinceDB;
-	}
-	
-	@Override
-	public void addMoveSinceDB() {
-		if (doubleBox)
-			movesSinceDB++;
-	}
-	
-	@Override
-	public Pawn clone() {
-		return new Pawn(getX(), getY(), getColor(), hasBeenMoved, doubleBox, movesSinceDB);
-	}
-	
-	@Override
-	public ArrayList<int[]> getValidMoves(Board board, boolean nextMove) {
+	public ArrayList<int[]> getValidMoves(Board board, int x, int y, boolean nextMove) {
 		ArrayList<int[]> validMoves = new ArrayList<>();
 		int i;
+		if (nextMove)  // Only the moves that do not leave the own king attacked
+			return MoveGenerator.getValidMoves(board, x, y);
 		for (i = 1; i < 3; i++) {  // Move 1 or 2 boxes to front
-			for (int [] move : frontMove(board, i, nextMove))
+			for (int [] move : frontMove(board, x, y, i))
 				validMoves.add(move);
 		}
 		for (i = -1; i < 2; i += 2) {  // Move on diagonal to left or right
-			for (int [] move : diagonalMove(board, i, nextMove))
+			for (int [] move : diagonalMove(board, x, y, i))
 				validMoves.add(move);
 		}
 		return validMoves;
 	}
 	
+	// A pawn that is still on its initial row has not been moved
+	public static boolean onInitialRow(int y, EnumColors color) {
+		return y == (color == EnumColors.WHITE ? Board.LOW_LIMIT + 1 : Board.HIGH_LIMIT - 1);
+	}
+	
 	// Front moves of pawns can be done in 2 cases:
 	// traditional move and initial move (2 boxes)
-	private ArrayList<int[]> frontMove(Board board, int dy, boolean nextMove) {
-		int x = getX(), y = getY();
+	private ArrayList<int[]> frontMove(Board board, int x, int y, int dy) {
 		EnumColors color = getColor();
 		Piece inFront;
 		ArrayList<int[]> validMove = new ArrayList<int[]>();
-		Board boardCopy;
 		dy = color == EnumColors.WHITE ? dy : -dy;
 		if (! Board.positionInsideBoard(x, y + dy))
 			return validMove;  // Out of board
-		if (Math.abs(dy) == 2 && getHasBeenMoved())
+		if (Math.abs(dy) == 2 && ! onInitialRow(y, color))
 			return validMove;  // The double box move is for first movement
 		inFront = board.getPiece(x, y + dy);
 		if (inFront != null)
@@ -97,25 +53,17 @@ public class Pawn extends Piece {
 		inFront = board.getPiece(x, y + dy/2);
 		if (Math.abs(dy) == 2 && inFront != null)
 			return validMove;  // The 2 squares in front should be free
-		if (nextMove) {
-			boardCopy = board.cloneBoard();
-			boardCopy.movePiece(x, y, x, y + dy);
-			if (Rules.kingInDanger(boardCopy, color))
-				return validMove;  // King would be attacked
-		}
 		validMove.add(new int[] {x, y + dy});
 		return validMove;
 	}
 	
 	// Diagonal moves of pawns can be done in 2 cases:
 	// eat traditionally and eat by pass
-	private ArrayList<int[]> diagonalMove(Board board, int dx, boolean nextMove) {
-		int x = getX(), y = getY();
+	private ArrayList<int[]> diagonalMove(Board board, int x, int y, int dx) {
 		EnumColors color = getColor();
 		int dy = color == EnumColors.WHITE ? 1 : -1;
 		ArrayList<int[]> validMove = new ArrayList<>();
 		Piece inDiagonal, nextTo;
-		Board boardCopy;
 		if (! Board.positionInsideBoard(x + dx, y + dy))
 			return validMove;  // Out of board
 		inDiagonal = board.getPiece(x + dx, y + dy);
@@ -128,21 +76,13 @@ public class Pawn extends Piece {
 		}
 		// The other way this position is valid is only if there is
 		// another pawn next to the current, they are different
-		// colors and the other pawn can be eaten by pass
+		// colors and the board saved the square that pawn jumped
 		else {
 			if (nextTo.getType() != EnumPieces.PAWN
 					|| nextTo.getColor() == color
-					|| ! (nextTo.getMovesSinceDB() == 0
-					&& nextTo.getDoubleBox()))
+					|| board.getEnPassant() != Bitboards.square(x + dx, y + dy))
 				return validMove;
 		}
-		if (nextMove) {
-			boardCopy = board.cloneBoard();
-			boardCopy.movePiece(x, y, x + dx, y + dy);
-			if (Rules.kingInDanger(boardCopy, color)) {
-				return validMove;  // This position is attacked
-			}
-		}
 		validMove.add(new int[] {x + dx, y + dy});
 		return validMove;
 	}
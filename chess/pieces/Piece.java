@@ -3,74 +3,64 @@ import java.util.ArrayList;
 import chess.board.*;
 
 public class Piece {
-	private byte x, y;
-	EnumColors color;
+	// The pieces do not save their position or any other state of the game,
+	// so there is only one piece of each type and color, shared by all boards.
+	// The boards save the code of the piece (type and color) on each square
+	private static final Piece PIECES[] = new Piece[16];  // [code]
+	private final EnumColors color;
 	
-	public Piece(int x, int y, EnumColors color) {
-		setPosition(x, y);
-		if (color == EnumColors.BLACK || color == EnumColors.WHITE)
-			this.color = color;
-	}
-	
-	public int getX() {
-		return x;
-	}
-	
-	public int getY() {
-		return y;
+	static {
+		for (EnumColors color : EnumColors.values()) {
+			add(new Pawn(color));
+			add(new Rook(color));
+			add(new Knight(color));
+			add(new Bishop(color));
+			add(new Queen(color));
+			add(new King(color));
+		}
 	}
 	
-	public EnumColors getColor() {
-		return color;
+	Piece(EnumColors color) {
+		this.color = color;
 	}
 	
-	// Each piece returns its own type
-	public EnumPieces getType() {
-		return EnumPieces.NONE;
+	private static void add(Piece piece) {
+		PIECES[piece.getCode()] = piece;
 	}
 	
-	// This is used for kings, pawns and rooks
-	public boolean getHasBeenMoved() {
-		return true;
+	// Get the piece of a type and color
+	public static Piece get(EnumPieces type, EnumColors color) {
+		return PIECES[getCode(type, color)];
 	}
 	
-	public void setHasBeenMoved() {
+	// Get the piece given its code, null for an empty square (code 0)
+	public static Piece fromCode(int code) {
+		return PIECES[code];
 	}
 	
-	// This is used for pawns
-	public boolean getDoubleBox() {
-		return false;
+	// The code of a piece fits on a byte: 3 bits for the type and 1 for the color
+	public static int getCode(EnumPieces type, EnumColors color) {
+		return type.ordinal() | (color.ordinal() << 3);
 	}
 	
-	public void setDoubleBox() {
+	public int getCode() {
+		return getCode(getType(), color);
 	}
 	
-	// This is used for pawns
-	public int getMovesSinceDB() {
-		return 0;
+	public EnumColors getColor() {
+		return color;
 	}
 	
-	public void addMoveSinceDB() {
+	// Each piece returns its own type
+	public EnumPieces getType() {
+		return EnumPieces.NONE;
 	}
 	
-	// Each piece finds and returns its own valid moves
+	// Each piece finds and returns its own valid moves from the position (x, y)
 	// nextMove = true if the search of valid moves is due to a piece
-	// clicked on UI, otherwise, it is due to the function kingInDanger
-	// looking for a checkmate. nextMove avoids an infinite recursion
-	public ArrayList<int[]> getValidMoves(Board board, boolean nextMove) {
+	// clicked on UI, otherwise, the moves that would leave the own king
+	// attacked are not removed
+	public ArrayList<int[]> getValidMoves(Board board, int x, int y, boolean nextMove) {
 		return new ArrayList<>();
 	}
-	
-	// Each piece clones all its attributes
-	public Piece clone() {
-		return new Piece(x, y, color);
-	}
-	
-	// This function sets the new position of the piece
-	public void setPosition(int x, int y) {
-		if (Board.positionInsideBoard(x, y)) {
-			this.x = (byte) x;
-			this.y = (byte) y;
-		}
-	}
 }
@@ -2,15 +2,12 @@ package chess.pieces;
 import java.util.ArrayList;
 
 import chess.board.*;
+import chess.rules.MoveGenerator;
 
 public class Queen extends Piece {
 	
-	public Queen(int x, EnumColors color) {
-		super(x, color == EnumColors.WHITE ? Board.LOW_LIMIT : Board.HIGH_LIMIT, color);
-	}
-	
-	public Queen(int x, int y, EnumColors color) {
-		super(x, y, color);
+	Queen(EnumColors color) {
+		super(color);
 	}
 	
 	@Override
@@ -18,18 +15,15 @@ public class Queen extends Piece {
 		return EnumPieces.QUEEN;
 	}
 	
-	@Override
-	public Queen clone() {
-		return new Queen(getX(), getY(), getColor());
-	}
-	
 	// The queen gets its own valid movements with the methods of rook and bishop
 	@Override
-	public ArrayList<int[]> getValidMoves(Board board, boolean nextMove) {
+	public ArrayList<int[]> getValidMoves(Board board, int x, int y, boolean nextMove) {
 		ArrayList<int[]> validMoves = new ArrayList<>();
-		for (int [] move : Rook.getRookMoves(getX(), getY(), getColor(), board, nextMove))
+		if (nextMove)  // Only the moves that do not leave the own king attacked
+			return MoveGenerator.getValidMoves(board, x, y);
+		for (int [] move : Rook.getRookMoves(x, y, getColor(), board))
 			validMoves.add(move);
-		for (int [] move : Bishop.getBishopMoves(getX(), getY(), getColor(), board, nextMove))
+		for (int [] move : Bishop.getBishopMoves(x, y, getColor(), board))
 			validMoves.add(move);
 		return validMoves;
 	}
@@ -0,0 +1,68 @@
+package chess.rules;
+import chess.board.*;
+
+public class LegalMoves {
+	// All valid moves of the color that moves on a position, generated once and
+	// grouped by the square of the piece. The moves of a clicked piece and the
+	// end of the game are found here without generating the moves again.
+	// The object does not change, so it can be created on other thread
+	private final EnumColors color;
+	private final boolean inCheck;
+	private final int moves[];
+	private final int first[] = new int[65];  // The moves of a square are from first[square] to first[square + 1] - 1
+	
+	public LegalMoves(Board board) {
+		MoveGenerator generator;
+		MoveList list = new MoveList();
+		int next[] = new int[64], i, square;
+		color = board.getTurn();
+		generator = new MoveGenerator(board, color);
+		generator.generateMoves(list);
+		inCheck = generator.inCheck();
+		moves = new int[list.size()];
+		for (i = 0; i < list.size(); i++)  // Count the moves of each square
+			first[Move.getFrom(list.get(i)) + 1]++;
+		for (square = 0; square < 64; square++) {
+			first[square + 1] += first[square];
+			next[square] = first[square];
+		}
+		for (i = 0; i < list.size(); i++)  // Put each move on the place of its square
+			moves[next[Move.getFrom(list.get(i))]++] = list.get(i);
+	}
+	
+	public EnumColors getColor() {
+		return color;
+	}
+	
+	public int size() {
+		return moves.length;
+	}
+	
+	public int get(int index) {
+		return moves[index];
+	}
+	
+	// Add the moves of the piece on the square to the list
+	public void getMoves(int square, MoveList list) {
+		int i;
+		for (i = first[square]; i < first[square + 1]; i++)
+			list.add(moves[i]);
+	}
+	
+	public int count(int square) {
+		return first[square + 1] - first[square];
+	}
+	
+	public boolean inCheck() {
+		return inCheck;
+	}
+	
+	// Without valid moves the game ends, it is checkmate if the king is attacked
+	public boolean isCheckmate() {
+		return moves.length == 0 && inCheck;
+	}
+	
+	public boolean isStalemate() {
+		return moves.length == 0 && ! inCheck;
+	}
+}
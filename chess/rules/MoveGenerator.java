@@ -0,0 +1,297 @@
+package chess.rules;
+import java.util.ArrayList;
+import chess.board.*;
+import chess.pieces.*;
+
+public class MoveGenerator {
+	private static final EnumPieces PROMOTIONS[] = {EnumPieces.QUEEN, EnumPieces.KNIGHT,
+			EnumPieces.ROOK, EnumPieces.BISHOP};
+	// This class finds the valid moves of a color without trying them on the board.
+	// First it finds the pieces that give check, the pieces that can not leave
+	// the line between the king and an enemy piece (pinned pieces) and the squares
+	// attacked by the enemy, then the possible moves of each piece are filtered
+	// with that information. All this is computed once for the position.
+	// A generator can be used again on other position with init, so the
+	// search keeps one for each thread and allocates nothing on its nodes
+	private Board board;
+	private EnumColors color, enemy;
+	private int kingSquare;
+	private long own, all;
+	private long checkers;  // Enemy pieces that attack the king
+	private long checkMask;  // A piece that is not the king must move to these squares
+	private long pinned;  // Pieces that can only move on the line of their pin
+	private long pinMasks[] = new long[64];  // Only read for the pinned squares, so they are never cleared
+	private long attacked;  // Squares attacked by the enemy, the king is not an obstacle
+	private MoveList special = new MoveList(8);
+	
+	public MoveGenerator(Board board, EnumColors color) {
+		init(board, color);
+	}
+	
+	// A generator without position, init must be called before using it
+	public MoveGenerator() {
+	}
+	
+	// Find the checks, the pins and the attacked squares of other position
+	public MoveGenerator init(Board board, EnumColors color) {
+		this.board = board;
+		this.color = color;
+		enemy = color == EnumColors.WHITE ? EnumColors.BLACK : EnumColors.WHITE;
+		kingSquare = board.getKingSquare(color);
+		own = board.getOccupied(color);
+		all = board.getOccupied();
+		findCheckersAndPins();
+		findAttackedSquares();
+		return this;
+	}
+	
+	// Valid moves of the piece on the position (x, y) as pairs (x, y)
+	public static ArrayList<int[]> getValidMoves(Board board, int x, int y) {
+		Piece piece = board.getPiece(x, y);
+		if (piece == null)
+			return new ArrayList<>();
+		return new MoveGenerator(board, piece.getColor()).getValidMoves(x, y);
+	}
+	
+	public ArrayList<int[]> getValidMoves(int x, int y) {
+		ArrayList<int[]> validMoves = new ArrayList<>();
+		MoveList moves = new MoveList(32);
+		int i, move;
+		generateMoves(x, y, moves);
+		for (i = 0; i < moves.size(); i++) {
+			move = moves.get(i);
+			// A coronation has a move for each piece, but the position is added once
+			if (Move.getPromotion(move) == EnumPieces.NONE || Move.getPromotion(move) == EnumPieces.QUEEN)
+				validMoves.add(new int[] {Bitboards.getX(Move.getTo(move)), Bitboards.getY(Move.getTo(move))});
+		}
+		return validMoves;
+	}
+	
+	// Add all valid moves of the color to the list
+	public void generateMoves(MoveList moves) {
+		long pieces = own;  // The board changes to try an eat by pass, so the piece lists are not used
+		int square;
+		while (pieces != 0) {
+			square = Long.numberOfTrailingZeros(pieces);
+			pieces &= pieces - 1;
+			addMoves(square, board.getPiece(square), moves);
+		}
+	}
+	
+	// Add the valid moves of the piece on the position (x, y) to the list
+	public void generateMoves(int x, int y, MoveList moves) {
+		Piece piece = board.getPiece(x, y);
+		if (piece == null || piece.getColor() != color)
+			return;
+		addMoves(Bitboards.square(x, y), piece, moves);
+	}
+	
+	// This function checks if at least one piece of the color can be moved
+	public boolean hasValidMoves() {
+		long pieces = own;
+		int square;
+		Piece piece;
+		while (pieces != 0) {
+			square = Long.numberOfTrailingZeros(pieces);
+			pieces &= pieces - 1;
+			piece = board.getPiece(square);
+			if (getTargets(square, piece) != 0)
+				return true;
+			// Special moves are rare, they are only checked if there is nothing else
+			special.clear();
+			if (piece.getType() == EnumPieces.PAWN)
+				addEatenByPass(square, special);
+			else if (piece.getType() == EnumPieces.KING)
+				addCastling(square, special);
+			if (special.size() > 0)
+				return true;
+		}
+		return false;
+	}
+	
+	public boolean inCheck() {
+		return checkers != 0;
+	}
+	
+	private void addMoves(int square, Piece piece, MoveList moves) {
+		long targets = getTargets(square, piece);
+		int to;
+		EnumPieces type = piece.getType(), eaten;
+		Piece target;
+		while (targets != 0) {
+			to = Long.numberOfTrailingZeros(targets);
+			targets &= targets - 1;
+			target = board.getPiece(to);
+			eaten = target == null ? EnumPieces.NONE : target.getType();
+			if (type == EnumPieces.PAWN && (to < 8 || to > 55)) {  // The pawn is crowned
+				for (EnumPieces promotion : PROMOTIONS)
+					moves.add(Move.create(square, to, type, eaten, promotion, Move.NORMAL));
+			}
+			else
+				moves.add(Move.create(square, to, type, eaten, EnumPieces.NONE, Move.NORMAL));
+		}
+		if (type == EnumPieces.PAWN)
+			addEatenByPass(square, moves);
+		else if (type == EnumPieces.KING)
+			addCastling(square, moves);
+	}
+	
+	// Squares where a piece can go with a normal move (no castling or eat by pass)
+	private long getTargets(int square, Piece piece) {
+		long targets;
+		if (piece.getType() == EnumPieces.KING)  // The king can not go to an attacked square
+			return Bitboards.kingAttacks(square) & ~own & ~attacked;
+		if (Long.bitCount(checkers) > 1)
+			return 0;  // Double check, only the king can move
+		switch (piece.getType()) {
+			case PAWN:
+				targets = pawnTargets(square);
+				break;
+			case KNIGHT:
+				targets = Bitboards.knightAttacks(square);
+				break;
+			case BISHOP:
+				targets = Bitboards.bishopAttacks(square, all);
+				break;
+			case ROOK:
+				targets = Bitboards.rookAttacks(square, all);
+				break;
+			case QUEEN:
+				targets = Bitboards.queenAttacks(square, all);
+				break;
+			default:
+				return 0;
+		}
+		targets &= ~own & checkMask;  // Eat or block the piece that gives check
+		if ((pinned & (1L << square)) != 0)
+			targets &= pinMasks[square];  // Do not leave the line of the pin
+		return targets;
+	}
+	
+	// Front moves and diagonal eats of a pawn, the eat by pass is apart
+	private long pawnTargets(int square) {
+		int dy = color == EnumColors.WHITE ? 8 : -8;
+		long targets = 0, front;
+		if (square + dy < 0 || square + dy > 63)
+			return 0;  // Out of board
+		front = 1L << (square + dy);
+		if ((all & front) == 0) {  // The square in front is free
+			targets |= front;
+			// The double box move is for first movement, both squares must be free
+			if (Pawn.onInitialRow(Bitboards.getY(square), color)
+					&& (all & (1L << (square + 2*dy))) == 0)
+				targets |= 1L << (square + 2*dy);
+		}
+		return targets | (Bitboards.pawnAttacks(square, color) & board.getOccupied(enemy));
+	}
+	
+	// A pawn can eat by pass another pawn only on the next move to the
+	// opponent's double box move, going to the square that the pawn jumped.
+	// This move removes 2 pieces of the same row, so it is the only move
+	// that is tried on the board
+	private void addEatenByPass(int square, MoveList moves) {
+		int target = board.getEnPassant(), eaten;
+		if (target == Board.NO_SQUARE || (Bitboards.pawnAttacks(square, color) & (1L << target)) == 0)
+			return;  // The pawn does not reach the jumped square
+		eaten = Bitboards.square(Bitboards.getX(target), Bitboards.getY(square));
+		if ((board.getBitboard(EnumPieces.PAWN, enemy) & (1L << eaten)) == 0)
+			return;  // The jumped square is not of an enemy pawn
+		if (Rules.kingInDangerAfterMove(board, Bitboards.getX(square), Bitboards.getY(square),
+				Bitboards.getX(target), Bitboards.getY(target), color))
+			return;  // King would be attacked
+		moves.add(Move.create(square, target, EnumPieces.PAWN, EnumPieces.PAWN, EnumPieces.NONE, Move.EATEN_BY_PASS));
+	}
+	
+	// The board saves if the king and the rook of each side have not been moved,
+	// the squares between them must be free, the squares on the king path must
+	// not be attacked, and the king can not be in check
+	private void addCastling(int square, MoveList moves) {
+		int xKing = Bitboards.getX(square), yKing = Bitboards.getY(square), i, j, rook;
+		boolean freeWay;
+		if (checkers != 0)
+			return;
+		for (j = -1; j < 2; j += 2) {  // Left (queen) or right (king) side
+			if (! board.hasCastlingRight(color, j > 0))
+				continue;
+			rook = Bitboards.square(j > 0 ? Board.HIGH_LIMIT : Board.LOW_LIMIT, yKing);
+			if ((board.getBitboard(EnumPieces.ROOK, color) & (1L << rook)) == 0
+					|| (Bitboards.between(square, rook) & all) != 0)
+				continue;  // The rook is not on its corner or there is a piece between them
+			freeWay = Board.positionInsideBoard(xKing + 2*j, yKing);
+			for (i = 1; i < 3 && freeWay; i++) {  // Check the squares on the king path
+				if ((attacked & (1L << Bitboards.square(xKing + i*j, yKing))) != 0)
+					freeWay = false;
+			}
+			if (freeWay)
+				moves.add(Move.create(square, Bitboards.square(xKing + 2*j, yKing),
+						EnumPieces.KING, EnumPieces.NONE, EnumPieces.NONE, Move.CASTLING));
+		}
+	}
+	
+	// The enemy sliding pieces are searched from the king, as if the pieces of
+	// the same color were not there. If there is nothing between them, the piece
+	// gives check, if there is only a piece of the same color, it is pinned
+	private void findCheckersAndPins() {
+		long enemyPieces = board.getOccupied(enemy), queens, snipers, between;
+		int square;
+		queens = board.getBitboard(EnumPieces.QUEEN, enemy);
+		checkers = Bitboards.knightAttacks(kingSquare) & board.getBitboard(EnumPieces.KNIGHT, enemy);
+		checkers |= Bitboards.pawnAttacks(kingSquare, color) & board.getBitboard(EnumPieces.PAWN, enemy);
+		snipers = Bitboards.rookAttacks(kingSquare, enemyPieces)
+				& (board.getBitboard(EnumPieces.ROOK, enemy) | queens);
+		snipers |= Bitboards.bishopAttacks(kingSquare, enemyPieces)
+				& (board.getBitboard(EnumPieces.BISHOP, enemy) | queens);
+		pinned = 0;
+		while (snipers != 0) {
+			square = Long.numberOfTrailingZeros(snipers);
+			snipers &= snipers - 1;
+			between = Bitboards.between(kingSquare, square) & all;
+			if (between == 0)
+				checkers |= 1L << square;
+			else if (Long.bitCount(between) == 1) {  // Always a piece of the same color
+				pinned |= between;
+				pinMasks[Long.numberOfTrailingZeros(between)] =
+						Bitboards.between(kingSquare, square) | (1L << square);
+			}
+		}
+		if (checkers == 0)
+			checkMask = -1L;  // All squares
+		else {
+			square = Long.numberOfTrailingZeros(checkers);
+			checkMask = checkers | Bitboards.between(kingSquare, square);
+		}
+	}
+	
+	// The king is removed from the occupancy, so it can not hide
+	// on the line of a sliding piece that attacks it
+	private void findAttackedSquares() {
+		long occupancy = all & ~(1L << kingSquare);
+		int square, i;
+		attacked = 0;
+		for (i = 0; i < board.getPieceCount(enemy); i++) {
+			square = board.getPieceSquare(enemy, i);
+			switch (board.getPiece(square).getType()) {
+				case PAWN:
+					attacked |= Bitboards.pawnAttacks(square, enemy);
+					break;
+				case KNIGHT:
+					attacked |= Bitboards.knightAttacks(square);
+					break;
+				case BISHOP:
+					attacked |= Bitboards.bishopAttacks(square, occupancy);
+					break;
+				case ROOK:
+					attacked |= Bitboards.rookAttacks(square, occupancy);
+					break;
+				case QUEEN:
+					attacked |= Bitboards.queenAttacks(square, occupancy);
+					break;
+				case KING:
+					attacked |= Bitboards.kingAttacks(square);
+					break;
+				default:
+					break;
+			}
+		}
+	}
+}
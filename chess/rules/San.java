@@ -0,0 +1,96 @@
+package chess.rules;
+import chess.board.*;
+import chess.pieces.EnumPieces;
+
+public class San {
+	// SAN is the notation of the moves on books and PGN files, like "Nf3", "exd5",
+	// "O-O" or "e8=Q+". It has the letter of the piece (nothing for a pawn) and the
+	// square where it goes. The column or row of the piece is only written when
+	// other piece of the same type can go to the same square
+	private static final String PIECE_LETTERS = " PRNBQK";  // By the order of EnumPieces
+	private static final EnumPieces TYPES[] = EnumPieces.values();
+	
+	// Find the valid move of the text, the moves of the position are
+	// given so they are not generated again for each text
+	public static int parse(LegalMoves legal, String san) {
+		int end = san.length(), start = 0, i, move, found = 0, to, fromX = -1, fromY = -1;
+		boolean kingSide;
+		char c;
+		EnumPieces type = EnumPieces.PAWN, promotion = EnumPieces.NONE;
+		// Check, checkmate, comments of the move and the "e.p." that some books
+		// write after an eat by pass, like "exd6 e.p." ("exd6ep" without the dots)
+		while (true) {
+			if (end > 0 && "+#!? ".indexOf(san.charAt(end - 1)) >= 0)
+				end--;
+			else if (san.startsWith("e.p.", end - 4))
+				end -= 4;
+			else if (san.startsWith("ep", end - 2))
+				end -= 2;
+			else
+				break;
+		}
+		if (end == 0)
+			throw new IllegalArgumentException("Empty move");
+		if (san.startsWith("O-O") || san.startsWith("0-0")) {
+			kingSide = end == 3;
+			if (! kingSide && ! san.startsWith("O-O-O") && ! san.startsWith("0-0-0"))
+				throw new IllegalArgumentException("Wrong castling: " + san);
+			for (i = 0; i < legal.size(); i++) {
+				move = legal.get(i);
+				if (Move.getSpecial(move) == Move.CASTLING
+						&& (Move.getTo(move) > Move.getFrom(move)) == kingSide)
+					return move;
+			}
+			throw new IllegalArgumentException("Illegal move: " + san);
+		}
+		c = san.charAt(0);
+		if (c >= 'A' && c <= 'Z') {  // The piece, nothing for the pawns
+			type = letterType(c);
+			if (type == EnumPieces.NONE || type == EnumPieces.PAWN)
+				throw new IllegalArgumentException("Wrong piece: " + san);
+			start = 1;
+		}
+		c = san.charAt(end - 1);
+		if (type == EnumPieces.PAWN && c >= 'A' && c <= 'Z') {  // Coronation, "e8=Q" or "e8Q"
+			promotion = letterType(c);
+			if (promotion == EnumPieces.NONE || promotion == EnumPieces.PAWN || promotion == EnumPieces.KING)
+				throw new IllegalArgumentException("Wrong coronation: " + san);
+			end--;
+			if (end > start && san.charAt(end - 1) == '=')
+				end--;
+		}
+		if (end - start < 2)
+			throw new IllegalArgumentException("Wrong move: " + san);
+		to = Fen.parseSquare(san.substring(end - 2, end));
+		for (i = start; i < end - 2; i++) {  // The column and row of the piece, the eat is not checked
+			c = san.charAt(i);
+			if (c >= 'a' && c <= 'h')
+				fromX = c - 'a';
+			else if (c >= '1' && c <= '8')
+				fromY = c - '1';
+			else if (c != 'x' && c != ':' && c != '-')
+				throw new IllegalArgumentException("Wrong move: " + san);
+		}
+		move = 0;
+		for (i = 0; i < legal.size(); i++) {
+			if (Move.getTo(legal.get(i)) != to || Move.getPiece(legal.get(i)) != type
+					|| Move.getPromotion(legal.get(i)) != promotion)
+				continue;
+			if ((fromX >= 0 && Bitboards.getX(Move.getFrom(legal.get(i))) != fromX)
+					|| (fromY >= 0 && Bitboards.getY(Move.getFrom(legal.get(i))) != fromY))
+				continue;
+			move = legal.get(i);
+			found++;
+		}
+		if (found == 0)
+			throw new IllegalArgumentException("Illegal move: " + san);
+		if (found > 1)
+			throw new IllegalArgumentException("Ambiguous move: " + san);
+		return move;
+	}
+	
+	private static EnumPieces letterType(char letter) {
+		int type = PIECE_LETTERS.indexOf(letter);
+		return type < 0 ? EnumPieces.NONE : TYPES[type];
+	}
+}
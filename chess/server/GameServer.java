@@ -0,0 +1,266 @@
+package chess.server;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicLong;
+
+import chess.board.*;
+import chess.engine.Tablebases;
+import chess.game.EnumStatus;
+import chess.game.GameSession;
+import chess.rules.LegalMoves;
+
+public class GameServer implements Closeable {
+	// Many games on one computer: each client connects with TCP and sends
+	// commands of one line, each command has an answer of one line:
+	//   new [fen]             ok <game>
+	//   move <game> <move>    ok <status> or illegal <move>  (moves like e2e4 or e7e8q, an error after the end)
+	//   moves <game> [square] ok <move> <move>...
+	//   status <game>         ok <status> <turn> <fen>
+	//   undo <game>           ok
+	//   close <game>          ok
+	//   quit
+	// A wrong command has the answer "error <message>". Each connection has its
+	// own thread, a virtual thread on Java 21 or newer (found with reflection,
+	// the code is for Java 17), and a game is only locked by its own commands
+	// (see GameSession), so the games do not wait for each other. Any
+	// connection can play a game with its number, the games are removed when
+	// the connection that created them is closed
+	public static final int DEFAULT_PORT = 7878;
+	private static final int BACKLOG = 4096;  // Connections waiting to be accepted
+	private static final long PLATFORM_STACK = 256 * 1024;  // Small stacks when the threads are not virtual
+	private ServerSocket server;
+	private ExecutorService connections = newThreadPerTask("game-connection");
+	private ConcurrentHashMap<Long, GameSession> sessions = new ConcurrentHashMap<>();
+	private AtomicLong lastId = new AtomicLong();
+	private Tablebases tablebases;  // null without endgame tables
+	private volatile boolean closed = false;
+	
+	public GameServer(InetSocketAddress address, Tablebases tablebases) throws IOException {
+		this.tablebases = tablebases;
+		server = new ServerSocket();
+		server.setReuseAddress(true);
+		server.bind(address, BACKLOG);
+	}
+	
+	// A thread for each task: virtual threads when the Java version has them,
+	// otherwise daemon threads with small stacks that are reused
+	public static ExecutorService newThreadPerTask(final String name) {
+		try {
+			return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+		}
+		catch (ReflectiveOperationException e) {
+			return Executors.newCachedThreadPool(new ThreadFactory() {
+				private AtomicLong count = new AtomicLong();
+	
+				public Thread newThread(Runnable task) {
+					Thread thread = new Thread(null, task, name + "-" + count.incrementAndGet(), PLATFORM_STACK);
+					thread.setDaemon(true);
+					return thread;
+				}
+			});
+		}
+	}
+	
+	// The port of the server, useful when it was chosen by the system (port 0)
+	public int getPort() {
+		return server.getLocalPort();
+	}
+	
+	// Games that are being played
+	public int getGames() {
+		return sessions.size();
+	}
+	
+	// Accept the connections until the server is closed
+	public void serve() throws IOException {
+		Socket socket;
+		while (! closed) {
+			try {
+				socket = server.accept();
+			}
+			catch (IOException e) {
+				if (closed)
+					return;
+				throw e;
+			}
+			connections.execute(newClient(socket));
+		}
+	}
+	
+	// Accept the connections on other thread
+	public void start() {
+		Thread thread = new Thread(new Runnable() {
+			public void run() {
+				try {
+					serve();
+				}
+				catch (IOException e) {
+					System.err.println("The server stopped: " + e.getMessage());
+				}
+			}
+		}, "game-server");
+		thread.setDaemon(true);
+		thread.start();
+	}
+	
+	public void close() throws IOException {
+		closed = true;
+		server.close();
+		connections.shutdownNow();
+	}
+	
+	private Runnable newClient(final Socket socket) {
+		return new Runnable() {
+			public void run() {
+				serveClient(socket);
+			}
+		};
+	}
+	
+	// Read the commands of a connection and answer each one
+	private void serveClient(Socket socket) {
+		ArrayList<Long> created = new ArrayList<>();  // The games of this connection
+		BufferedReader reader;
+		Writer writer;
+		String line, answer;
+		try {
+			socket.setTcpNoDelay(true);  // Each answer is sent at once
+			reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+			writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+			while ((line = reader.readLine()) != null) {
+				answer = execute(line, created);
+				if (answer == null)
+					break;  // quit
+				writer.write(answer);
+				writer.write('\n');
+				writer.flush();
+			}
+		}
+		catch (IOException e) {
+			// The client closed the connection
+		}
+		finally {
+			for (Long id : created)
+				sessions.remove(id);
+			try {
+				socket.close();
+			}
+			catch (IOException e) {
+				// It is already closed
+			}
+		}
+	}
+	
+	// The answer of a command, null to close the connection. The games
+	// created are added to the list
+	public String execute(String line, ArrayList<Long> created) {
+		String words[] = line.trim().split("\\s+");
+		GameSession session;
+		EnumStatus status;
+		long id;
+		try {
+			switch (words[0]) {
+				case "new":
+					session = new GameSession(tablebases);
+					if (words.length > 1)
+						session.restart(line.trim().substring(3).trim());
+					id = lastId.incrementAndGet();
+					sessions.put(id, session);
+					created.add(id);
+					return "ok " + id;
+				case "move":
+					status = getSession(words).play(words[2]);  // One lock for the check and the move
+					if (status == null)
+						return "illegal " + words[2];
+					return "ok " + status.name().toLowerCase();
+				case "moves":
+					return "ok" + getMoves(getSession(words), words.length > 2 ? Fen.parseSquare(words[2]) : -1);
+				case "status":
+					session = getSession(words);
+					return "ok " + session.getStatus().name().toLowerCase() + " "
+							+ (session.getTurn() == EnumColors.WHITE ? "white" : "black") + " " + session.getFen();
+				case "undo":
+					if (! getSession(words).back())
+						return "error There are no moves to undo";
+					return "ok";
+				case "close":
+					id = Long.parseLong(words[1]);
+					if (sessions.remove(id) == null)
+						return "error Unknown game: " + words[1];
+					created.remove(Long.valueOf(id));
+					return "ok";
+				case "quit":
+					return null;
+				default:
+					return "error Unknown command: " + words[0];
+			}
+		}
+		catch (IllegalArgumentException | IllegalStateException | IndexOutOfBoundsException e) {
+			return "error " + e.getMessage();
+		}
+	}
+	
+	private GameSession getSession(String words[]) {
+		GameSession session = sessions.get(Long.parseLong(words[1]));
+		if (session == null)
+			throw new IllegalArgumentException("Unknown game: " + words[1]);
+		return session;
+	}
+	
+	// The valid moves of the position, or of the piece on the square
+	private static String getMoves(GameSession session, int square) {
+		StringBuilder text = new StringBuilder();
+		LegalMoves legal = session.getLegalMoves();
+		MoveList list;
+		int i;
+		if (square < 0) {
+			for (i = 0; i < legal.size(); i++)
+				text.append(' ').append(Move.toCoordinates(legal.get(i)));
+			return text.toString();
+		}
+		list = new MoveList();
+		legal.getMoves(square, list);
+		for (i = 0; i < list.size(); i++)
+			text.append(' ').append(Move.toCoordinates(list.get(i)));
+		return text.toString();
+	}
+	
+	public static void main(String args[]) throws IOException {
+		String host = "127.0.0.1", folder = null;
+		int port = DEFAULT_PORT, i;
+		GameServer server;
+		for (i = 0; i < args.length; i++) {
+			if (args[i].equals("-host") && i + 1 < args.length)
+				host = args[++i];
+			else if (args[i].equals("-port") && i + 1 < args.length)
+				port = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-tablebases") && i + 1 < args.length)
+				folder = args[++i];
+			else if (args[i].equals("-help")) {
+				System.out.println("Usage: GameServer [-host address] [-port n] [-tablebases folder]");
+				return;
+			}
+			else
+				throw new IllegalArgumentException("Unknown option: " + args[i]);
+		}
+		server = new GameServer(new InetSocketAddress(InetAddress.getByName(host), port),
+				folder == null ? null : Tablebases.open(folder));
+		System.out.println("Listening on " + host + ":" + server.getPort());
+		server.serve();
+	}
+}
@@ -0,0 +1,188 @@
+package chess.tools;
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+import chess.board.*;
+import chess.engine.OpeningBook;
+import chess.rules.LegalMoves;
+import chess.rules.San;
+
+public class BookBuilder {
+	// Build an opening book (see OpeningBook) from the games of a PGN file.
+	// The first moves of each game are saved with the key of their position
+	// and points by the result for the color that moved: 2 for a win, 1 for
+	// a draw or an unknown result and 0 for a loss. Then the moves are sorted
+	// by key and move, the same moves are joined, the moves played on less
+	// games than a minimum are removed and the points are the weight
+	private static final long PART_SIZE = 64L << 20;  // Bytes of the PGN mapped at the same time
+	private static final int MAX_WEIGHT = 0xFFFF;
+	private long keys[] = new long[1 << 16];
+	private int moves[] = new int[1 << 16];  // Compact move << 16 | points, and then the weight
+	private int count = 0;
+	
+	// Add the first plies of the game
+	private void addGame(PgnReader reader, Board board, int plies) {
+		String fen = reader.getTag("FEN"), result = reader.getTag("Result"), san;
+		int ply, move, points;
+		try {
+			if (fen == null)
+				board.setDefaultBoard();
+			else
+				Fen.load(board, fen);
+			for (ply = 0; ply < plies && (san = reader.nextMove()) != null; ply++) {
+				move = San.parse(new LegalMoves(board), san);
+				if ("1-0".equals(result))
+					points = board.getTurn() == EnumColors.WHITE ? 2 : 0;
+				else if ("0-1".equals(result))
+					points = board.getTurn() == EnumColors.BLACK ? 2 : 0;
+				else
+					points = 1;
+				add(board.getKey(), Move.compact(move), points);
+				board.movePiece(move);
+			}
+		}
+		catch (IllegalArgumentException e) {
+			// The game has a wrong move, the moves before it are kept
+		}
+	}
+	
+	private void add(long key, short move, int points) {
+		if (count == keys.length) {
+			keys = Arrays.copyOf(keys, count * 2);
+			moves = Arrays.copyOf(moves, count * 2);
+		}
+		keys[count] = key;
+		moves[count] = (move & 0xFFFF) << 16 | points;
+		count++;
+	}
+	
+	// Join the same moves of the same position and remove the moves of less than minGames games
+	private void join(int minGames) {
+		int i, j, joined = 0, points, total, sums[] = new int[count];
+		sort(0, count - 1);
+		for (i = 0; i < count; i = j) {
+			points = 0;
+			for (j = i; j < count && keys[j] == keys[i] && moves[j] >>> 16 == moves[i] >>> 16; j++)
+				points += moves[j] & 0xFFFF;
+			if (j - i < minGames || points == 0)
+				continue;
+			keys[joined] = keys[i];
+			moves[joined] = moves[i] & 0xFFFF0000;
+			sums[joined] = points;
+			joined++;
+		}
+		count = joined;
+		for (i = 0; i < count; i = j) {  // The weights of a position are scaled to 16 bits
+			total = 0;
+			for (j = i; j < count && keys[j] == keys[i]; j++)
+				total = Math.max(total, sums[j]);
+			for (j = i; j < count && keys[j] == keys[i]; j++)
+				moves[j] |= total <= MAX_WEIGHT ? sums[j] : Math.max(1, (int) ((long) sums[j] * MAX_WEIGHT / total));
+		}
+	}
+	
+	// Quicksort by key and move, the arrays are too big for a sort with objects
+	private void sort(int low, int high) {
+		int i, j;
+		long key;
+		int move;
+		while (high - low > 16) {
+			i = low;
+			j = high;
+			key = keys[(low + high) >>> 1];
+			move = moves[(low + high) >>> 1] >>> 16;
+			while (i <= j) {
+				while (compare(i, key, move) < 0)
+					i++;
+				while (compare(j, key, move) > 0)
+					j--;
+				if (i <= j)
+					swap(i++, j--);
+			}
+			if (j - low < high - i) {  // The smaller side is sorted first, so the stack is small
+				sort(low, j);
+				low = i;
+			}
+			else {
+				sort(i, high);
+				high = j;
+			}
+		}
+		for (i = low + 1; i <= high; i++) {  // Few records are sorted by insertion
+			for (j = i; j > low && compare(j - 1, keys[j], moves[j] >>> 16) > 0; j--)
+				swap(j - 1, j);
+		}
+	}
+	
+	private int compare(int record, long key, int move) {
+		if (keys[record] != key)
+			return Long.compare(keys[record], key);
+		return Integer.compare(moves[record] >>> 16, move);
+	}
+	
+	private void swap(int i, int j) {
+		long key = keys[i];
+		int move = moves[i];
+		keys[i] = keys[j];
+		keys[j] = key;
+		moves[i] = moves[j];
+		moves[j] = move;
+	}
+	
+	private void write(String path) throws IOException {
+		int i;
+		try (DataOutputStream output = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path), 1 << 16))) {
+			output.writeInt(OpeningBook.MAGIC);
+			output.writeInt(OpeningBook.VERSION);
+			output.writeLong(count);
+			for (i = 0; i < count; i++) {
+				output.writeLong(keys[i]);
+				output.writeShort(moves[i] >>> 16);
+				output.writeShort(moves[i] & 0xFFFF);
+			}
+		}
+	}
+	
+	public static void main(String args[]) throws IOException {
+		BookBuilder builder = new BookBuilder();
+		Board board = new Board();
+		PgnReader reader;
+		int plies = 20, minGames = 2, i, gameCount = 0, moveCount;
+		long size, position, start = System.nanoTime();
+		if (args.length < 2) {
+			System.out.println("Usage: BookBuilder games.pgn book.bin [-plies n] [-min games]");
+			return;
+		}
+		for (i = 2; i < args.length; i++) {
+			if (args[i].equals("-plies") && i + 1 < args.length)
+				plies = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-min") && i + 1 < args.length)
+				minGames = Integer.parseInt(args[++i]);
+			else
+				throw new IllegalArgumentException("Unknown option: " + args[i]);
+		}
+		try (FileChannel channel = FileChannel.open(Paths.get(args[0]), StandardOpenOption.READ)) {
+			size = channel.size();
+			for (position = 0; position < size; position += PART_SIZE) {
+				reader = PgnReader.map(channel, position, Math.min(size, position + PART_SIZE));
+				while (reader.nextGame()) {
+					builder.addGame(reader, board, plies);
+					gameCount++;
+				}
+			}
+		}
+		moveCount = builder.count;
+		builder.join(minGames);
+		builder.write(args[1]);
+		System.out.println("Games: " + gameCount);
+		System.out.println("Moves read: " + moveCount);
+		System.out.println("Records: " + builder.count);
+		System.out.println("Time: " + (System.nanoTime() - start) / 1000000 + " ms");
+	}
+}
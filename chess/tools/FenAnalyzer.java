@@ -0,0 +1,171 @@
+package chess.tools;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import chess.board.*;
+import chess.rules.LegalMoves;
+
+public class FenAnalyzer {
+	// Read a file with a FEN on each line and write for each position the
+	// number of valid moves and if it is check, checkmate or stalemate:
+	//   moves <tab> status <tab> FEN
+	// The lines are read in batches and each batch is analyzed on a thread of
+	// the pool. Only some batches are in memory at the same time: when there
+	// are enough batches waiting, the oldest one is written before reading
+	// more lines, so the output has the order of the input and the memory
+	// does not depend on the size of the file
+	private static final int BATCH_SIZE = 4096;  // Lines of each batch
+	private static final int BATCHES_PER_THREAD = 4;  // Batches waiting for each thread
+	private static final int REPORT_EVERY = 1000000;  // Positions between the progress lines
+	// The counts of each batch, by the order of the status
+	private static final String STATUS[] = {"normal", "check", "checkmate", "stalemate", "invalid"};
+	private static final int NORMAL = 0, CHECK = 1, CHECKMATE = 2, STALEMATE = 3, INVALID = 4;
+	
+	// The result of a batch, it is written by the thread that reads
+	private static class Batch {
+		StringBuilder output;
+		long counts[] = new long[STATUS.length];
+		long moves;  // Valid moves of all positions
+	}
+	
+	// Analyze the lines of a batch on a board of the thread
+	private static Batch analyze(List<String> lines, boolean quiet) {
+		Batch batch = new Batch();
+		Board board = new Board();
+		LegalMoves legal;
+		int status, count;
+		batch.output = new StringBuilder(quiet ? 0 : lines.size() * 80);
+		for (String line : lines) {
+			try {
+				Fen.load(board, line);
+				legal = new LegalMoves(board);
+				count = legal.size();
+				if (legal.isCheckmate())
+					status = CHECKMATE;
+				else if (legal.isStalemate())
+					status = STALEMATE;
+				else
+					status = legal.inCheck() ? CHECK : NORMAL;
+			}
+			catch (IllegalArgumentException e) {
+				count = -1;
+				status = INVALID;
+			}
+			batch.counts[status]++;
+			batch.moves += Math.max(count, 0);
+			if (! quiet)
+				batch.output.append(count).append('\t').append(STATUS[status]).append('\t').append(line).append('\n');
+		}
+		return batch;
+	}
+	
+	public static void main(String args[]) throws IOException, InterruptedException, ExecutionException {
+		String input = null, output = null, line;
+		int threads = Runtime.getRuntime().availableProcessors(), i;
+		boolean quiet = false;
+		long start, elapsed, positions = 0, nextReport = REPORT_EVERY, moves = 0, counts[] = new long[STATUS.length];
+		List<String> lines;
+		ArrayDeque<Future<Batch>> waiting = new ArrayDeque<>();
+		BufferedReader reader;
+		Writer writer = null;
+		ExecutorService pool;
+		Batch batch;
+		if (args.length == 0) {
+			System.out.println("Usage: FenAnalyzer file|- [-out file] [-threads n] [-quiet]");
+			return;
+		}
+		input = args[0];
+		for (i = 1; i < args.length; i++) {
+			if (args[i].equals("-out") && i + 1 < args.length)
+				output = args[++i];
+			else if (args[i].equals("-threads") && i + 1 < args.length)
+				threads = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-quiet"))
+				quiet = true;
+			else
+				throw new IllegalArgumentException("Unknown option: " + args[i]);
+		}
+		threads = Math.max(1, threads);
+		reader = new BufferedReader(new InputStreamReader(input.equals("-") ? System.in
+				: new FileInputStream(input), StandardCharsets.UTF_8), 1 << 16);
+		if (! quiet)
+			writer = new BufferedWriter(new OutputStreamWriter(output == null ? System.out
+					: new FileOutputStream(output), StandardCharsets.UTF_8), 1 << 16);
+		pool = Executors.newFixedThreadPool(threads);
+		start = System.nanoTime();
+		try {
+			lines = new ArrayList<>(BATCH_SIZE);
+			while (true) {
+				line = reader.readLine();
+				if (line != null && ! line.isBlank()) {
+					lines.add(line);
+					if (lines.size() < BATCH_SIZE)
+						continue;
+				}
+				if (! lines.isEmpty())
+					waiting.add(pool.submit(newTask(lines, quiet)));
+				lines = new ArrayList<>(BATCH_SIZE);
+				// Write the oldest batches if there are too many, or all at the end
+				while (! waiting.isEmpty() && (line == null || waiting.size() >= threads * BATCHES_PER_THREAD)) {
+					batch = waiting.poll().get();
+					if (writer != null)
+						writer.append(batch.output);
+					for (i = 0; i < counts.length; i++) {
+						counts[i] += batch.counts[i];
+						positions += batch.counts[i];
+					}
+					moves += batch.moves;
+					if (positions >= nextReport) {
+						nextReport += REPORT_EVERY;
+						System.err.println(positions + " positions, "
+								+ perSecond(positions, System.nanoTime() - start) + " positions per second");
+					}
+				}
+				if (line == null)
+					break;
+			}
+		}
+		finally {
+			pool.shutdownNow();
+			reader.close();
+			if (writer != null && output != null)
+				writer.close();  // The file is closed, and its errors are thrown
+			else if (writer != null)
+				writer.flush();  // The standard output stays open
+		}
+		elapsed = System.nanoTime() - start;
+		System.err.println("Positions: " + positions);
+		for (i = 0; i < STATUS.length; i++)
+			System.err.println("  " + STATUS[i] + ": " + counts[i]);
+		System.err.println("Valid moves: " + moves);
+		System.err.println("Time: " + elapsed / 1000000 + " ms");
+		System.err.println("Positions per second: " + perSecond(positions, elapsed));
+	}
+	
+	private static Callable<Batch> newTask(final List<String> lines, final boolean quiet) {
+		return new Callable<Batch>() {
+			public Batch call() {
+				return analyze(lines, quiet);
+			}
+		};
+	}
+	
+	private static long perSecond(long count, long nanos) {
+		return (long) (count / Math.max(nanos / 1e9, 1e-9));
+	}
+}
@@ -0,0 +1,198 @@
+package chess.tools;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+import chess.server.GameServer;
+
+public class LoadGenerator {
+	// Many clients play random games on a GameServer at the same time, each one
+	// on its own connection: it asks for the valid moves, sends one of them and
+	// measures the time until the answer of the move (the server checks it and
+	// makes it). When the game ends, or it is too long, the client starts other.
+	// At the end the times of all moves are sorted to find the percentiles
+	private static final int MAX_PLIES = 200;  // A game is closed after these moves
+	private static final int CONNECT_TIMEOUT = 30000;
+	
+	// A client with its connection and the times of its moves
+	private static class Client implements Runnable {
+		private String host;
+		private int port;
+		private long deadline;
+		private CountDownLatch ready, start;
+		long latencies[] = new long[1024];  // Nanoseconds of each move
+		int count = 0;
+		long games = 0, errors = 0;
+		private BufferedReader reader;
+		private Writer writer;
+	
+		Client(String host, int port, CountDownLatch ready, CountDownLatch start) {
+			this.host = host;
+			this.port = port;
+			this.ready = ready;
+			this.start = start;
+		}
+	
+		public void run() {
+			ThreadLocalRandom random = ThreadLocalRandom.current();
+			String id, answer, moves[];
+			long before;
+			int plies = 0;
+			boolean counted = false;  // The latch of the connections is counted once
+			try (Socket socket = new Socket()) {
+				socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT);
+				socket.setTcpNoDelay(true);
+				reader = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8));
+				writer = new BufferedWriter(new OutputStreamWriter(socket.getOutputStream(), StandardCharsets.UTF_8));
+				ready.countDown();
+				counted = true;
+				start.await();  // All clients begin at the same time
+				id = send("new").substring(3);
+				while (System.nanoTime() < deadline) {
+					moves = send("moves " + id).split(" ");
+					if (moves.length < 2) {  // The game ended without being noticed
+						errors++;
+						break;
+					}
+					before = System.nanoTime();
+					answer = send("move " + id + " " + moves[1 + random.nextInt(moves.length - 1)]);
+					add(System.nanoTime() - before);
+					plies++;
+					if (! answer.startsWith("ok"))
+						errors++;
+					if (! answer.equals("ok playing") || plies >= MAX_PLIES) {
+						send("close " + id);
+						id = send("new").substring(3);
+						games++;
+						plies = 0;
+					}
+				}
+				writer.write("quit\n");
+				writer.flush();
+			}
+			catch (IOException | InterruptedException | RuntimeException e) {
+				errors++;
+				if (! counted)
+					ready.countDown();  // Other clients do not wait for this one
+			}
+		}
+	
+		private String send(String command) throws IOException {
+			String answer;
+			writer.write(command);
+			writer.write('\n');
+			writer.flush();
+			answer = reader.readLine();
+			if (answer == null)
+				throw new IOException("The server closed the connection");
+			return answer;
+		}
+	
+		private void add(long latency) {
+			if (count == latencies.length)
+				latencies = Arrays.copyOf(latencies, count * 2);
+			latencies[count++] = latency;
+		}
+	}
+	
+	public static void main(String args[]) throws IOException, InterruptedException, ExecutionException {
+		String host = "127.0.0.1";
+		int port = GameServer.DEFAULT_PORT, clients = 1000, seconds = 10, i, count = 0;
+		boolean local = false;
+		long all[], moves = 0, games = 0, errors = 0, start, elapsed, deadline;
+		GameServer server = null;
+		ExecutorService threads;
+		CountDownLatch ready, go;
+		List<Client> list = new ArrayList<>();
+		List<Future<?>> tasks = new ArrayList<>();
+		for (i = 0; i < args.length; i++) {
+			if (args[i].equals("-host") && i + 1 < args.length)
+				host = args[++i];
+			else if (args[i].equals("-port") && i + 1 < args.length)
+				port = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-clients") && i + 1 < args.length)
+				clients = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-seconds") && i + 1 < args.length)
+				seconds = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-server"))
+				local = true;
+			else if (args[i].equals("-help")) {
+				System.out.println("Usage: LoadGenerator [-host address] [-port n] [-clients n] [-seconds n] [-server]");
+				System.out.println("  -server: start a server on this process, on a free port");
+				return;
+			}
+			else
+				throw new IllegalArgumentException("Unknown option: " + args[i]);
+		}
+		if (local) {
+			server = new GameServer(new InetSocketAddress(InetAddress.getByName(host), 0), null);
+			server.start();
+			port = server.getPort();
+		}
+		threads = GameServer.newThreadPerTask("load-client");
+		ready = new CountDownLatch(clients);
+		go = new CountDownLatch(1);
+		for (i = 0; i < clients; i++) {
+			list.add(new Client(host, port, ready, go));
+			tasks.add(threads.submit(list.get(i)));
+		}
+		ready.await();  // All connections are open
+		System.out.println(clients + " clients connected to " + host + ":" + port
+				+ (server == null ? "" : ", " + server.getGames() + " games"));
+		start = System.nanoTime();
+		deadline = start + seconds * 1000000000L;
+		for (Client client : list)
+			client.deadline = deadline;
+		go.countDown();
+		for (Future<?> task : tasks)
+			task.get();
+		elapsed = System.nanoTime() - start;
+		threads.shutdown();
+		if (server != null)
+			server.close();
+		for (Client client : list) {
+			moves += client.count;
+			games += client.games;
+			errors += client.errors;
+		}
+		all = new long[(int) moves];
+		for (Client client : list) {
+			System.arraycopy(client.latencies, 0, all, count, client.count);
+			count += client.count;
+		}
+		Arrays.sort(all);
+		System.out.println("Moves: " + moves);
+		System.out.println("Games ended: " + games);
+		System.out.println("Errors: " + errors);
+		System.out.println("Moves per second: " + (long) (moves / Math.max(elapsed / 1e9, 1e-9)));
+		if (moves == 0)
+			return;
+		System.out.println("Move latency (microseconds):");
+		System.out.println("  p50: " + percentile(all, 50));
+		System.out.println("  p90: " + percentile(all, 90));
+		System.out.println("  p99: " + percentile(all, 99));
+		System.out.println("  p99.9: " + percentile(all, 99.9));
+		System.out.println("  max: " + all[all.length - 1] / 1000);
+	}
+	
+	// The time under which the percent of the moves were answered
+	private static long percentile(long sorted[], double percent) {
+		int index = (int) Math.ceil(sorted.length * percent / 100) - 1;
+		return sorted[Math.max(0, Math.min(sorted.length - 1, index))] / 1000;
+	}
+}
@@ -0,0 +1,179 @@
+package chess.tools;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+import chess.board.*;
+import chess.rules.MoveGenerator;
+
+public class Perft {
+	// Perft counts all positions that can be reached after a number of moves.
+	// The counts of known positions are published, so a different count means
+	// that the move generator has an error, and the time shows how fast it is.
+	// The root moves are counted at the same time on a ForkJoinPool, each one
+	// on its own copy of the board, and the counts of the positions already
+	// seen are saved on a hash table shared by all threads
+	private static final int MAX_DEPTH = 64;
+	private long hashKeys[], hashNodes[];  // The key is saved as key ^ nodes, see probe
+	private int hashMask;
+	
+	// hashMB = 0 to count without hash table
+	public Perft(int hashMB) {
+		int entries = 1;
+		if (hashMB > 0) {
+			while ((long) entries * 2 * 16 <= (long) hashMB << 20)  // 16 bytes for each entry
+				entries *= 2;
+			hashKeys = new long[entries];
+			hashNodes = new long[entries];
+			hashMask = entries - 1;
+		}
+	}
+	
+	// Count the positions after depth moves, the root moves are counted in parallel
+	public long count(Board board, EnumColors color, int depth, ForkJoinPool pool) {
+		long nodes = 0;
+		for (long count : divide(board, color, depth, pool))
+			nodes += count;
+		return nodes;
+	}
+	
+	// Count the positions after depth moves for each valid move, the moves
+	// are in the order of MoveGenerator.generateMoves
+	public long[] divide(Board board, EnumColors color, int depth, ForkJoinPool pool) {
+		MoveList moves = new MoveList();
+		List<RootTask> tasks = new ArrayList<>();
+		long counts[];
+		int i;
+		new MoveGenerator(board, color).generateMoves(moves);
+		for (i = 0; i < moves.size(); i++)
+			tasks.add(new RootTask(board, color, moves.get(i), depth));
+		for (RootTask task : tasks)
+			pool.execute(task);
+		counts = new long[tasks.size()];
+		for (i = 0; i < counts.length; i++)
+			counts[i] = tasks.get(i).join();
+		return counts;
+	}
+	
+	// Each root move is counted on a copy of the board, so
+	// the threads do not share anything but the hash table
+	private class RootTask extends RecursiveTask<Long> {
+		private static final long serialVersionUID = 1L;
+		private Board board;
+		private EnumColors color;
+		private int move, depth;
+	
+		RootTask(Board board, EnumColors color, int move, int depth) {
+			this.board = board.cloneBoard();
+			this.color = color;
+			this.move = move;
+			this.depth = depth;
+		}
+	
+		@Override
+		protected Long compute() {
+			MoveList lists[] = new MoveList[MAX_DEPTH];
+			if (depth <= 1)
+				return 1L;
+			board.makeMove(move);
+			return search(board, enemy(color), depth - 1, lists, new MoveGenerator());
+		}
+	}
+	
+	// lists has a list of moves for each depth and the generator is used again
+	// on each position (before going deeper), so nothing is allocated on the search
+	private long search(Board board, EnumColors color, int depth, MoveList lists[], MoveGenerator generator) {
+		MoveList moves;
+		long nodes = 0, key = 0;
+		int i;
+		if (lists[depth] == null)
+			lists[depth] = new MoveList();
+		moves = lists[depth];
+		moves.clear();
+		generator.init(board, color).generateMoves(moves);
+		if (depth == 1)
+			return moves.size();  // The positions of the last move are not made
+		if (hashKeys != null) {
+			key = board.getKey() ^ (depth * 0x9E3779B97F4A7C15L);  // The same position at other depth has other count
+			nodes = probe(key);
+			if (nodes >= 0)
+				return nodes;
+			nodes = 0;
+		}
+		for (i = 0; i < moves.size(); i++) {
+			board.makeMove(moves.get(i));
+			nodes += search(board, enemy(color), depth - 1, lists, generator);
+			board.unmakeMove();
+		}
+		if (hashKeys != null)
+			store(key, nodes);
+		return nodes;
+	}
+	
+	// The entries are written by several threads without locks. The key is saved
+	// mixed with the count, so an entry written by half is not taken as valid
+	private long probe(long key) {
+		int index = (int) key & hashMask;
+		long nodes = hashNodes[index];
+		if ((hashKeys[index] ^ nodes) == key)
+			return nodes;
+		return -1;  // This position is not saved
+	}
+	
+	private void store(long key, long nodes) {
+		int index = (int) key & hashMask;
+		hashNodes[index] = nodes;
+		hashKeys[index] = key ^ nodes;
+	}
+	
+	private static EnumColors enemy(EnumColors color) {
+		return color == EnumColors.WHITE ? EnumColors.BLACK : EnumColors.WHITE;
+	}
+	
+	// Usage: Perft depth [-fen "position"] [-divide] [-threads n] [-hash MB]
+	public static void main(String args[]) {
+		Board board = new Board();
+		EnumColors color;
+		String fen = Fen.START;
+		boolean divide = false;
+		int depth, threads = Runtime.getRuntime().availableProcessors(), hashMB = 64, i;
+		long start, nodes = 0, elapsed, counts[];
+		MoveList moves = new MoveList();
+		ForkJoinPool pool;
+		if (args.length == 0) {
+			System.out.println("Usage: Perft depth [-fen \"position\"] [-divide] [-threads n] [-hash MB]");
+			return;
+		}
+		depth = Integer.parseInt(args[0]);
+		for (i = 1; i < args.length; i++) {
+			if (args[i].equals("-fen") && i + 1 < args.length)
+				fen = args[++i];
+			else if (args[i].equals("-divide"))
+				divide = true;
+			else if (args[i].equals("-threads") && i + 1 < args.length)
+				threads = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-hash") && i + 1 < args.length)
+				hashMB = Integer.parseInt(args[++i]);
+			else
+				throw new IllegalArgumentException("Unknown option: " + args[i]);
+		}
+		color = Fen.load(board, fen);
+		pool = new ForkJoinPool(Math.max(1, threads));
+		start = System.nanoTime();
+		counts = new Perft(hashMB).divide(board, color, depth, pool);
+		elapsed = System.nanoTime() - start;
+		pool.shutdown();
+		new MoveGenerator(board, color).generateMoves(moves);
+		for (i = 0; i < counts.length; i++) {
+			if (divide)
+				System.out.println(Move.toCoordinates(moves.get(i)) + ": " + counts[i]);
+			nodes += counts[i];
+		}
+		if (depth < 1)
+			nodes = 1;
+		System.out.println("Nodes: " + nodes);
+		System.out.println("Time: " + elapsed / 1000000 + " ms");
+		System.out.println("Nodes per second: " + (long) (nodes / Math.max(elapsed / 1e9, 1e-9)));
+	}
+}
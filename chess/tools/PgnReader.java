@@ -0,0 +1,253 @@
+package chess.tools;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.HashMap;
+
+public class PgnReader {
+	// Read the games of a PGN file that is on a buffer, usually a part of a
+	// mapped file. A game has tags like [White "Name"], one on each line, and
+	// then the moves with their numbers, comments {...} or ;..., variations
+	// (...) and the result. Only the moves of the main line are given.
+	// A game starts on a line that starts with '[' after a line that is not
+	// a tag, so a file can be split in parts on any byte: each part reads the
+	// games that start on it (see findGame)
+	private static final long MAX_GAME = 16L << 20;  // The last game of a part can end this far
+	private static final long LOOK_BACK = 64L << 10;  // Bytes before the part, for the line before the first game
+	private ByteBuffer buffer;
+	private long base = 0;  // Position of the buffer on the file
+	private boolean complete = true;  // The buffer reaches the end of the file
+	private int position, stop, limit;
+	private int gameStart, gameEnd;
+	private HashMap<String, String> tags = new HashMap<>();
+	private String result;
+	private byte text[] = new byte[256];  // For the tags and the moves
+	
+	// Read the games that start from start to stop, they can end until the limit of the buffer
+	public PgnReader(ByteBuffer buffer, int start, int stop) {
+		this.buffer = buffer;
+		this.stop = stop;
+		limit = buffer.limit();
+		position = start;
+	}
+	
+	// Map the part of the file from start to stop, with some bytes before it
+	// to know where its first game starts and some bytes after it for its last game
+	public static PgnReader map(FileChannel channel, long start, long stop) throws IOException {
+		long base = Math.max(0, start - LOOK_BACK), end = Math.min(channel.size(), stop + MAX_GAME);
+		PgnReader reader = new PgnReader(channel.map(FileChannel.MapMode.READ_ONLY, base, end - base),
+				(int) (start - base), (int) (stop - base));
+		reader.base = base;
+		reader.complete = end == channel.size();
+		return reader;
+	}
+	
+	// Go to the next game and read its tags, false if there are no more games
+	public boolean nextGame() {
+		gameStart = findGame(buffer, position, limit);
+		if (gameStart >= stop || gameStart >= limit)
+			return false;
+		gameEnd = findGame(buffer, gameStart + 1, limit);
+		position = gameStart;
+		tags.clear();
+		result = null;
+		readTags();
+		return true;
+	}
+	
+	// The position of the game on the file
+	public long getGameStart() {
+		return base + gameStart;
+	}
+	
+	// The game ends where the next starts or at the limit of the buffer, a game
+	// that reaches the limit of a part that is not the end of the file is cut
+	public boolean isGameCut() {
+		return gameEnd == limit && ! complete;
+	}
+	
+	// null if the game does not have the tag
+	public String getTag(String name) {
+		return tags.get(name);
+	}
+	
+	// The next move of the main line, null after the last one
+	public String nextMove() {
+		int start, length;
+		byte c;
+		while (position < gameEnd) {
+			c = buffer.get(position);
+			if (c <= ' ' || c == ')') {
+				position++;
+				continue;
+			}
+			if (c == '{') {  // Comment
+				position = skipTo(position + 1, (byte) '}');
+				continue;
+			}
+			if (c == ';' || c == '%' || c == '[') {  // Comment until the end of the line
+				position = skipTo(position + 1, (byte) '\n');
+				continue;
+			}
+			if (c == '(') {  // Variation, they can have other variations
+				skipVariation();
+				continue;
+			}
+			start = position;
+			while (position < gameEnd && ! endOfToken(buffer.get(position)))
+				position++;
+			if (c == '$')  // Annotation with a number
+				continue;
+			length = 0;
+			for (; start < position; start++) {  // The move number is ignored, "12." or "12...e5"
+				c = buffer.get(start);
+				if (c == '.' && length > 0 && isNumber(length)) {
+					length = 0;
+					continue;
+				}
+				if (length < text.length && c != '.')
+					text[length++] = c;
+			}
+			if (length == 0 || isNumber(length) || equalsText("ep", length))
+				continue;  // Also the "e.p." written apart after an eat by pass, the dots are not kept
+			if (isResult(length)) {
+				result = new String(text, 0, length, StandardCharsets.US_ASCII);
+				position = gameEnd;  // Nothing of the game is after the result
+				return null;
+			}
+			return new String(text, 0, length, StandardCharsets.US_ASCII);
+		}
+		return null;
+	}
+	
+	// The result written after the moves ("1-0", "0-1", "1/2-1/2" or "*"),
+	// null if it was not found. It is read by nextMove
+	public String getResult() {
+		return result;
+	}
+	
+	// Find the first game that starts from the position, or the limit if there is none
+	public static int findGame(ByteBuffer buffer, int from, int limit) {
+		int i;
+		for (i = from; i < limit; i++) {
+			if (buffer.get(i) == '[' && (i == 0 || buffer.get(i - 1) == '\n') && ! afterTag(buffer, i))
+				return i;
+		}
+		return limit;
+	}
+	
+	// Check if the line before the line that starts on the position is a tag, the empty lines are skipped
+	private static boolean afterTag(ByteBuffer buffer, int lineStart) {
+		int i = lineStart - 1;
+		while (i >= 0 && buffer.get(i) <= ' ')
+			i--;
+		if (i < 0)
+			return false;  // This is the first line
+		while (i > 0 && buffer.get(i - 1) != '\n')
+			i--;
+		while (buffer.get(i) == ' ' || buffer.get(i) == '\t')
+			i++;
+		return buffer.get(i) == '[';
+	}
+	
+	// Lines like [Name "Value"] until the moves, the values can have \" and \\
+	private void readTags() {
+		int nameStart, nameEnd, length;
+		byte c;
+		String name;
+		while (true) {
+			while (position < gameEnd && buffer.get(position) <= ' ')
+				position++;
+			if (position >= gameEnd || buffer.get(position) != '[')
+				return;
+			nameStart = ++position;
+			while (position < gameEnd && buffer.get(position) > ' ' && buffer.get(position) != ']')
+				position++;
+			nameEnd = position;
+			while (position < gameEnd && buffer.get(position) != '"' && buffer.get(position) != '\n')
+				position++;
+			length = 0;
+			if (position < gameEnd && buffer.get(position) == '"') {
+				for (position++; position < gameEnd && buffer.get(position) != '"'; position++) {
+					c = buffer.get(position);
+					if (c == '\n')
+						break;  // The tag is not closed
+					if (c == '\\' && position + 1 < gameEnd)
+						c = buffer.get(++position);
+					if (length == text.length)
+						text = Arrays.copyOf(text, length * 2);
+					text[length++] = c;
+				}
+			}
+			position = skipTo(position, (byte) '\n');
+			name = asciiText(nameStart, nameEnd);
+			tags.put(name, new String(text, 0, length, StandardCharsets.UTF_8));
+		}
+	}
+	
+	private void skipVariation() {
+		int depth = 0;
+		byte c;
+		for (; position < gameEnd; position++) {
+			c = buffer.get(position);
+			if (c == '(')
+				depth++;
+			else if (c == ')' && --depth == 0) {
+				position++;
+				return;
+			}
+			else if (c == '{')  // The comments can have parentheses
+				position = skipTo(position + 1, (byte) '}') - 1;
+		}
+	}
+	
+	// The position after the next character, or the end of the game
+	private int skipTo(int from, byte character) {
+		int i;
+		for (i = from; i < gameEnd; i++) {
+			if (buffer.get(i) == character)
+				return i + 1;
+		}
+		return gameEnd;
+	}
+	
+	private static boolean endOfToken(byte c) {
+		return c <= ' ' || c == '{' || c == '}' || c == '(' || c == ')' || c == ';';
+	}
+	
+	// The first bytes of the text are digits
+	private boolean isNumber(int length) {
+		int i;
+		for (i = 0; i < length; i++) {
+			if (text[i] < '0' || text[i] > '9')
+				return false;
+		}
+		return true;
+	}
+	
+	private boolean isResult(int length) {
+		return (length == 1 && text[0] == '*') || equalsText("1-0", length)
+				|| equalsText("0-1", length) || equalsText("1/2-1/2", length);
+	}
+	
+	private boolean equalsText(String value, int length) {
+		int i;
+		if (value.length() != length)
+			return false;
+		for (i = 0; i < length; i++) {
+			if (text[i] != value.charAt(i))
+				return false;
+		}
+		return true;
+	}
+	
+	private String asciiText(int start, int end) {
+		StringBuilder name = new StringBuilder(end - start);
+		int i;
+		for (i = start; i < end; i++)
+			name.append((char) buffer.get(i));
+		return name.toString();
+	}
+}
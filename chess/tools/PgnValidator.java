@@ -0,0 +1,153 @@
+package chess.tools;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import chess.board.*;
+import chess.rules.LegalMoves;
+import chess.rules.San;
+
+public class PgnValidator {
+	// Replay all games of a PGN file with the rules of the game and report the
+	// moves that are not valid and the results that are not correct (a result
+	// that is not the one of the tags, or other result after a checkmate or
+	// a stalemate). The file is mapped on memory and split in parts, each part
+	// is read on a thread of the pool with its own board. A part has the games
+	// that start on it, the last game can continue on the next part
+	private static final long PART_SIZE = 32L << 20;  // Bytes of each part
+	private static final int MAX_MESSAGES = 100;  // Errors kept for each part, all are counted
+	
+	// The counts of a part, they are added by the order of the file
+	private static class Part {
+		long games, moves, wrongGames;
+		List<String> messages = new ArrayList<>();
+	}
+	
+	private static Part validate(FileChannel channel, long start, long stop) throws IOException {
+		Part part = new Part();
+		PgnReader reader = PgnReader.map(channel, start, stop);
+		Board board = new Board();
+		String error;
+		while (reader.nextGame()) {
+			part.games++;
+			if (reader.isGameCut())
+				error = "The game is too long";
+			else
+				error = replay(reader, board, part);
+			if (error == null)
+				continue;
+			part.wrongGames++;
+			if (part.messages.size() < MAX_MESSAGES)
+				part.messages.add("Game at byte " + reader.getGameStart() + " ("
+						+ reader.getTag("White") + " - " + reader.getTag("Black") + "): " + error);
+		}
+		return part;
+	}
+	
+	// Play the moves of the game and check its result, null if all is correct
+	private static String replay(PgnReader reader, Board board, Part part) {
+		String fen = reader.getTag("FEN"), tag = reader.getTag("Result"), result, san;
+		LegalMoves legal;
+		int plies = 0;
+		try {
+			if (fen == null)
+				board.setDefaultBoard();
+			else
+				Fen.load(board, fen);
+		}
+		catch (IllegalArgumentException e) {
+			return e.getMessage();
+		}
+		while ((san = reader.nextMove()) != null) {
+			legal = new LegalMoves(board);
+			try {
+				board.movePiece(San.parse(legal, san));
+			}
+			catch (IllegalArgumentException e) {
+				return "Move " + (plies / 2 + 1) + ": " + e.getMessage();
+			}
+			plies++;
+			part.moves++;
+		}
+		legal = new LegalMoves(board);
+		result = reader.getResult();
+		if (result == null)
+			return "There is no result after the moves";
+		if (tag != null && ! tag.equals(result))
+			return "The result " + result + " is not the result of the tags " + tag;
+		if (legal.isCheckmate() && ! result.equals(board.getTurn() == EnumColors.WHITE ? "0-1" : "1-0"))
+			return "The result " + result + " is wrong after a checkmate";
+		if (legal.isStalemate() && ! result.equals("1/2-1/2"))
+			return "The result " + result + " is wrong after a stalemate";
+		return null;
+	}
+	
+	public static void main(String args[]) throws IOException, InterruptedException, ExecutionException {
+		int threads = Runtime.getRuntime().availableProcessors(), i;
+		boolean quiet = false;
+		long size, start, elapsed, games = 0, moves = 0, wrongGames = 0, position;
+		List<Future<Part>> parts = new ArrayList<>();
+		FileChannel channel;
+		ExecutorService pool;
+		Part part;
+		if (args.length == 0) {
+			System.out.println("Usage: PgnValidator file [-threads n] [-quiet]");
+			return;
+		}
+		for (i = 1; i < args.length; i++) {
+			if (args[i].equals("-threads") && i + 1 < args.length)
+				threads = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-quiet"))
+				quiet = true;
+			else
+				throw new IllegalArgumentException("Unknown option: " + args[i]);
+		}
+		channel = FileChannel.open(Paths.get(args[0]), StandardOpenOption.READ);
+		pool = Executors.newFixedThreadPool(Math.max(1, threads));
+		size = channel.size();
+		start = System.nanoTime();
+		try {
+			for (position = 0; position < size; position += PART_SIZE)
+				parts.add(pool.submit(newTask(channel, position, Math.min(size, position + PART_SIZE))));
+			for (Future<Part> future : parts) {  // By the order of the file
+				part = future.get();
+				games += part.games;
+				moves += part.moves;
+				wrongGames += part.wrongGames;
+				if (! quiet) {
+					for (String message : part.messages)
+						System.out.println(message);
+					if (part.wrongGames > part.messages.size())
+						System.out.println("... and " + (part.wrongGames - part.messages.size()) + " games more with errors");
+				}
+			}
+		}
+		finally {
+			pool.shutdownNow();
+			channel.close();
+		}
+		elapsed = System.nanoTime() - start;
+		System.out.println("Games: " + games);
+		System.out.println("Moves: " + moves);
+		System.out.println("Games with errors: " + wrongGames);
+		System.out.println("Time: " + elapsed / 1000000 + " ms");
+		System.out.println("Games per second: " + (long) (games / Math.max(elapsed / 1e9, 1e-9)));
+		System.out.println("MB per second: " + (long) (size / 1048576.0 / Math.max(elapsed / 1e9, 1e-9)));
+	}
+	
+	private static Callable<Part> newTask(final FileChannel channel, final long start, final long stop) {
+		return new Callable<Part>() {
+			public Part call() throws IOException {
+				return validate(channel, start, stop);
+			}
+		};
+	}
+}
@@ -0,0 +1,89 @@
+package chess.tools;
+import java.util.ArrayList;
+import java.util.List;
+
+import chess.board.*;
+import chess.engine.*;
+
+public class SearchSpeedup {
+	// Search some positions to a fixed depth with 1, 2, 4... threads and print
+	// the time to reach the depth, the nodes per second and the speedup against
+	// a single thread. Each count of threads starts with an empty table
+	private static final String POSITIONS[] = {
+		Fen.START,
+		"r3k2r/p1ppqpb1/bn2pnp1/3PN3/1p2P3/2N2Q1p/PPPBBPPP/R3K2R w KQkq - 0 1",
+		"r1bq1rk1/pp2bppp/2n1pn2/3p4/2PP4/2N1PN2/PP1QBPPP/R3KB1R w KQ - 0 9",
+		"8/2p5/3p4/KP5r/1R3p1k/8/4P1P1/8 w - - 0 1"
+	};
+	
+	// The first searches are slower while the JVM compiles the code, so they
+	// would make the other counts of threads look faster. The positions are
+	// searched until the time of a round is like the time of the round before
+	private static void warmUp(int depth, int hashMB) {
+		TranspositionTable table = new TranspositionTable(hashMB);
+		ParallelSearch search = new ParallelSearch(table, 1);
+		Board board = new Board();
+		long start, time, last = Long.MAX_VALUE;
+		int i;
+		for (i = 0; i < 15; i++) {
+			table.clear();
+			start = System.nanoTime();
+			for (String fen : POSITIONS) {
+				Fen.load(board, fen);
+				search.findBestMove(board, Integer.MAX_VALUE, depth);
+			}
+			time = System.nanoTime() - start;
+			if (i >= 3 && time > last * 0.95)
+				break;
+			last = time;
+		}
+		search.shutdown();
+	}
+	
+	// Usage: SearchSpeedup [-depth d] [-threads 1,2,4] [-hash MB]
+	public static void main(String args[]) {
+		int depth = 7, hashMB = 64, i, threads;
+		List<Integer> counts = new ArrayList<>();
+		long time, nodes, baseTime = 0, baseRate = 0, rate;
+		for (i = 0; i < args.length; i++) {
+			if (args[i].equals("-depth") && i + 1 < args.length)
+				depth = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-threads") && i + 1 < args.length) {
+				for (String count : args[++i].split(","))
+					counts.add(Integer.parseInt(count.trim()));
+			}
+			else if (args[i].equals("-hash") && i + 1 < args.length)
+				hashMB = Integer.parseInt(args[++i]);
+			else
+				throw new IllegalArgumentException("Unknown option: " + args[i]);
+		}
+		if (counts.isEmpty())  // 1, 2, 4... until all processors
+			for (threads = 1; threads < 2 * Runtime.getRuntime().availableProcessors(); threads *= 2)
+				counts.add(Math.min(threads, Runtime.getRuntime().availableProcessors()));
+		warmUp(depth, hashMB);
+		System.out.printf("Depth %d, %d positions%n", depth, POSITIONS.length);
+		System.out.printf("%8s %12s %14s %14s %10s %10s%n", "threads", "time (ms)", "nodes", "nodes/s", "speedup", "nps ratio");
+		for (int count : counts) {
+			TranspositionTable table = new TranspositionTable(hashMB);
+			ParallelSearch search = new ParallelSearch(table, count);
+			Board board = new Board();
+			time = 0;
+			nodes = 0;
+			for (String fen : POSITIONS) {
+				long start = System.nanoTime();
+				Fen.load(board, fen);
+				search.findBestMove(board, Integer.MAX_VALUE, depth);
+				time += System.nanoTime() - start;
+				nodes += search.getNodes();
+			}
+			search.shutdown();
+			rate = (long) (nodes / (time / 1e9));
+			if (baseTime == 0) {  // The first count is the reference
+				baseTime = time;
+				baseRate = rate;
+			}
+			System.out.printf("%8d %12d %14d %14d %10.2f %10.2f%n", count, time / 1000000, nodes, rate,
+					(double) baseTime / time, (double) rate / baseRate);
+		}
+	}
+}
@@ -0,0 +1,88 @@
+package chess.tools;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+
+import chess.board.*;
+import chess.engine.*;
+import chess.uci.Uci;
+
+public class StopCheck {
+	// Check that a stop sent right after a search is handed to other thread
+	// ends that search, even if the thread did not start it yet, and that a
+	// stop never ends a search prepared after it. A search that misses its
+	// stop runs without limit, so each round waits a few seconds at most
+	private static final int WAIT = 5000;  // Milliseconds for a stopped search to end
+	
+	// A search without time or depth limit on other thread, stopped at once
+	private static boolean stopAtOnce(final ParallelSearch search, final Board board) throws InterruptedException {
+		final int number = search.prepare();
+		Thread thread = new Thread(new Runnable() {
+			public void run() {
+				search.findBestMove(board, Integer.MAX_VALUE, Search.MAX_PLY, number);
+			}
+		}, "stop-check");
+		thread.setDaemon(true);  // A search that never ends does not keep the program alive
+		thread.start();
+		search.stop();
+		thread.join(WAIT);
+		return ! thread.isAlive();
+	}
+	
+	// The commands "go infinite" and "stop" sent one after the other to the
+	// UCI engine, the "stop" must end the search and send "bestmove"
+	private static boolean uciGoStop(final Uci uci, ByteArrayOutputStream out) throws InterruptedException {
+		Thread thread = new Thread(new Runnable() {
+			public void run() {
+				uci.execute("position startpos");
+				uci.execute("go infinite");
+				uci.execute("stop");
+			}
+		}, "uci-stop-check");
+		thread.setDaemon(true);
+		thread.start();
+		thread.join(WAIT);
+		return ! thread.isAlive() && new String(out.toByteArray(), StandardCharsets.UTF_8).contains("bestmove");
+	}
+	
+	// Usage: StopCheck [-rounds n] [-threads n]
+	public static void main(String args[]) throws InterruptedException {
+		int rounds = 200, threads = 2, i, failed = 0;
+		ParallelSearch search;
+		Board board = new Board();
+		for (i = 0; i < args.length; i++) {
+			if (args[i].equals("-rounds") && i + 1 < args.length)
+				rounds = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-threads") && i + 1 < args.length)
+				threads = Integer.parseInt(args[++i]);
+			else
+				throw new IllegalArgumentException("Unknown option: " + args[i]);
+		}
+		board.setDefaultBoard();
+		search = new ParallelSearch(new TranspositionTable(16), threads);
+		for (i = 0; i < rounds && failed == 0; i++)
+			if (! stopAtOnce(search, board)) {
+				System.out.println("Round " + i + ": the search did not end after the stop");
+				failed++;
+			}
+		search.stop();  // A stop without search must not end the next one
+		search.findBestMove(board, Integer.MAX_VALUE, 4);
+		if (search.getDepth() != 4) {
+			System.out.println("An old stop ended a new search at depth " + search.getDepth());
+			failed++;
+		}
+		search.shutdown();
+		for (i = 0; i < rounds && failed == 0; i++) {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			Uci uci = new Uci(new PrintStream(out, true, StandardCharsets.UTF_8));
+			if (! uciGoStop(uci, out)) {
+				System.out.println("Round " + i + ": \"stop\" did not end \"go infinite\"");
+				failed++;
+			}
+			uci.execute("quit");
+		}
+		System.out.println(failed == 0 ? "OK " + rounds + " rounds" : "FAILED");
+		if (failed > 0)
+			System.exit(1);
+	}
+}
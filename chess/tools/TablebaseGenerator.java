@@ -0,0 +1,381 @@
+package chess.tools;
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import chess.board.*;
+import chess.engine.Tablebase;
+import chess.engine.Tablebases;
+import chess.pieces.EnumPieces;
+import chess.pieces.Piece;
+import chess.rules.MoveGenerator;
+import chess.rules.Rules;
+
+public class TablebaseGenerator {
+	// Make the endgame tables of some materials (see Tablebase) with a
+	// retrograde analysis. First each position is tried on a board with the
+	// valid moves of MoveGenerator: it can be a mate, a stalemate, or have
+	// eats and coronations that go to the tables of less pieces, which are
+	// made before. Then the results go back from the ends of the game: the
+	// positions that lose in d plies make a win in d + 1 for the positions
+	// that move to them, and a position loses when all its moves go to wins
+	// of the opponent, after the longest one. The positions before a move are
+	// found with the moves of the pieces backwards. Each step is done on all
+	// threads with parts of the positions.
+	// The tables are only for positions without castling rights, with pawns
+	// of one color (there are no eats by pass) and the fifty moves rule is not
+	// used, like on the most of endgame tables
+	private static final int INVALID = 255;  // Value of a position that is not possible
+	private static final int ESCAPE = 255;  // The position has a move that does not lose
+	private static final int MAX_DISTANCE = 253;  // The longest mate that a value can save
+	private static final int PARTS_PER_THREAD = 8;
+	private static final VarHandle BYTES = MethodHandles.arrayElementVarHandle(byte[].class);
+	private Tablebases tablebases = new Tablebases();  // Tables made or loaded until now
+	private Path folder;
+	private ExecutorService pool;
+	private int threads;
+	// The table that is being made, by position
+	private Tablebase table;
+	private int pieces, blackKing;
+	private byte values[];  // 0 while it is not known, then the value of Tablebase or INVALID
+	private byte counters[];  // Moves that go to positions of the same table and are not known yet
+	private byte wins[];  // The shortest win with an eat or a coronation, 0 if there is not
+	private byte losses[];  // The longest loss with an eat or a coronation, or ESCAPE
+	private AtomicInteger longest = new AtomicInteger();  // The longest distance found
+	
+	// A work on the positions from..to-1, done on a thread of the pool
+	private static abstract class Part {
+		abstract void run(int from, int to);
+	}
+	
+	public TablebaseGenerator(Path folder, int threads) {
+		this.folder = folder;
+		this.threads = Math.max(1, threads);
+	}
+	
+	// Make the table of the material and the tables that it needs, the tables
+	// that are on the folder are loaded and not made again
+	public Tablebase generate(String material) throws IOException, InterruptedException, ExecutionException {
+		String name = Tablebase.canonical(material);
+		Path path = folder.resolve(name + Tablebases.EXTENSION);
+		Tablebase done = tablebases.get(name);
+		if (done != null)
+			return done;
+		if (Files.exists(path)) {
+			done = Tablebase.load(path);
+			tablebases.add(done);
+			System.out.println(name + ": loaded from " + path);
+			return done;
+		}
+		if (name.substring(0, name.indexOf('K', 1)).indexOf('P') >= 0
+				&& name.substring(name.indexOf('K', 1)).indexOf('P') >= 0)
+			throw new IllegalArgumentException("The pawns must be of one color: " + name);
+		for (String child : children(name))
+			generate(child);
+		pool = Executors.newFixedThreadPool(threads);
+		try {
+			make(name);
+		}
+		finally {
+			pool.shutdownNow();
+		}
+		Files.createDirectories(folder);
+		table.save(path);
+		tablebases.add(table);
+		done = table;
+		table = null;
+		values = counters = wins = losses = null;
+		return done;
+	}
+	
+	// The materials after an eat or a coronation
+	private static ArrayList<String> children(String name) {
+		ArrayList<String> children = new ArrayList<>();
+		String child;
+		int i;
+		for (i = 1; i < name.length(); i++) {
+			if (name.charAt(i) == 'K')
+				continue;
+			child = Tablebase.canonical(name.substring(0, i) + name.substring(i + 1));
+			if (! children.contains(child))
+				children.add(child);
+			if (name.charAt(i) != 'P')
+				continue;
+			for (char promotion : "QRBN".toCharArray()) {
+				child = Tablebase.canonical(name.substring(0, i) + promotion + name.substring(i + 1));
+				if (! children.contains(child))
+					children.add(child);
+			}
+		}
+		return children;
+	}
+	
+	private void make(String name) throws InterruptedException, ExecutionException {
+		long start = System.nanoTime(), counts[] = new long[3];
+		int entries, distance, value, bits, i;
+		final int layer[] = new int[1];
+		table = new Tablebase(name);
+		pieces = table.getPieces();
+		blackKing = name.indexOf('K', 1);
+		entries = (int) table.getEntries();
+		values = new byte[entries];
+		counters = new byte[entries];
+		wins = new byte[entries];
+		losses = new byte[entries];
+		longest.set(0);
+		parallel(new Part() {
+			void run(int from, int to) {
+				Board board = new Board();
+				MoveList moves = new MoveList();
+				MoveGenerator generator = new MoveGenerator();
+				int index;
+				for (index = from; index < to; index++)
+					values[index] = (byte) firstValue(board, generator, moves, index);
+			}
+		});
+		for (distance = 0; distance <= longest.get(); distance++) {
+			if (distance > MAX_DISTANCE)
+				throw new IllegalStateException("The mates of " + name + " are too long");
+			layer[0] = distance;
+			if (distance % 2 == 1)  // The wins with an eat or a coronation of this distance
+				parallel(new Part() {
+					void run(int from, int to) {
+						int index;
+						for (index = from; index < to; index++)
+							if (values[index] == 0 && (wins[index] & 0xFF) == layer[0])
+								values[index] = (byte) (layer[0] + 1);
+					}
+				});
+			parallel(new Part() {
+				void run(int from, int to) {
+					int before[] = new int[256];
+					int index, count, j;
+					for (index = from; index < to; index++) {
+						if ((values[index] & 0xFF) != layer[0] + 1)
+							continue;
+						count = predecessors(index, before);
+						for (j = 0; j < count; j++)
+							if (layer[0] % 2 == 0)
+								lostBy(before[j], layer[0]);
+							else
+								wonBy(before[j], layer[0]);
+					}
+				}
+			});
+		}
+		for (i = 0; i < entries; i++) {
+			value = values[i] & 0xFF;
+			if (value == INVALID)
+				values[i] = 0;
+			else
+				counts[value == 0 ? 2 : value % 2 == 0 ? 0 : 1]++;
+		}
+		bits = Tablebase.bitsFor(longest.get() + 1);
+		table.setValues(Tablebase.pack(values, bits), bits);
+		System.out.println(name + ": " + (counts[0] + counts[1] + counts[2]) + " positions, "
+				+ counts[0] + " wins, " + counts[1] + " losses, " + counts[2] + " draws, longest mate "
+				+ longest.get() + " plies, " + bits + " bits, " + (System.nanoTime() - start) / 1000000 + " ms");
+	}
+	
+	// The value of a position before the retrograde analysis: a mate, a loss
+	// when all moves are eats that lose, 0 if it is not known or INVALID
+	private int firstValue(Board board, MoveGenerator generator, MoveList moves, int index) {
+		long occupied = 0;
+		int i, square, move, value, win = 0, loss = 0, count = 0;
+		boolean escape = false;
+		EnumColors turn = (index & 1) == 0 ? EnumColors.WHITE : EnumColors.BLACK;
+		for (i = 0; i < pieces; i++) {
+			square = Tablebase.getSquare(index, i);
+			if ((occupied & (1L << square)) != 0)
+				return INVALID;  // 2 pieces on the same square
+			if (table.getType(i) == EnumPieces.PAWN && (square < 8 || square > 55))
+				return INVALID;  // The pawns are never on the first or last rows
+			occupied |= 1L << square;
+		}
+		if ((Bitboards.kingAttacks(Tablebase.getSquare(index, 0))
+				& (1L << Tablebase.getSquare(index, blackKing))) != 0)
+			return INVALID;
+		board.clear();
+		for (i = 0; i < pieces; i++) {
+			square = Tablebase.getSquare(index, i);
+			board.addPiece(Piece.get(table.getType(i), table.getColor(i)), Bitboards.getX(square), Bitboards.getY(square));
+		}
+		board.setTurn(turn);
+		if (Rules.kingInDanger(board, turn == EnumColors.WHITE ? EnumColors.BLACK : EnumColors.WHITE))
+			return INVALID;  // The color that does not move is in check
+		generator.init(board, turn);
+		moves.clear();
+		generator.generateMoves(moves);
+		if (moves.size() == 0) {
+			losses[index] = (byte) ESCAPE;
+			return generator.inCheck() ? 1 : 0;  // Checkmate (lost in 0 plies) or stalemate
+		}
+		for (i = 0; i < moves.size(); i++) {
+			move = moves.get(i);
+			if (Move.getEaten(move) == EnumPieces.NONE && Move.getPromotion(move) == EnumPieces.NONE) {
+				count++;
+				continue;
+			}
+			board.makeMove(move);
+			value = tablebases.probe(board);
+			board.unmakeMove();
+			if (value == Tablebase.NOT_FOUND)
+				throw new IllegalStateException("There is not a table for " + Tablebase.getMaterial(board));
+			if (value == Tablebase.DRAW)
+				escape = true;
+			else if ((value - 1) % 2 == 0) {  // The opponent loses in value - 1 plies
+				escape = true;
+				if (win == 0 || value < win)
+					win = value;
+			}
+			else
+				loss = Math.max(loss, value);
+		}
+		counters[index] = (byte) count;
+		wins[index] = (byte) win;
+		losses[index] = (byte) (escape ? ESCAPE : loss);
+		if (win > 0)
+			updateLongest(win);
+		if (count == 0 && ! escape) {
+			updateLongest(loss);
+			return loss + 1;
+		}
+		return 0;
+	}
+	
+	// A move to a position that loses in distance plies is a win in distance + 1
+	private void lostBy(int index, int distance) {
+		if (values[index] == 0) {
+			values[index] = (byte) (distance + 2);
+			updateLongest(distance + 1);
+		}
+	}
+	
+	// A move to a position that wins in distance plies, when it was the last
+	// move that was not known the position loses
+	private void wonBy(int index, int distance) {
+		int loss;
+		if (values[index] != 0 || decrement(index) != 0)
+			return;
+		if ((losses[index] & 0xFF) == ESCAPE)
+			return;  // An eat keeps the draw, it is not a loss
+		loss = Math.max(distance + 1, losses[index] & 0xFF);
+		values[index] = (byte) (loss + 1);
+		updateLongest(loss);
+	}
+	
+	// Take 1 from the counter of the position with a compare and set, because
+	// other threads can count the same position. Returns the new count
+	private int decrement(int index) {
+		byte count;
+		do
+			count = (byte) BYTES.getVolatile(counters, index);
+		while (! BYTES.compareAndSet(counters, index, count, (byte) (count - 1)));
+		return count - 1;
+	}
+	
+	private void updateLongest(int distance) {
+		int current = longest.get();
+		while (distance > current && ! longest.compareAndSet(current, distance))
+			current = longest.get();
+	}
+	
+	// The positions that move to this one: the color that does not move
+	// has moved a piece to its square from an empty square. Returns the count
+	private int predecessors(int index, int before[]) {
+		long occupied = 0, targets, base;
+		int i, square, from, count = 0;
+		EnumColors moved = (index & 1) == 0 ? EnumColors.BLACK : EnumColors.WHITE;
+		for (i = 0; i < pieces; i++)
+			occupied |= 1L << Tablebase.getSquare(index, i);
+		for (i = 0; i < pieces; i++) {
+			if (table.getColor(i) != moved)
+				continue;
+			square = Tablebase.getSquare(index, i);
+			switch (table.getType(i)) {
+				case PAWN:  // Back 1 or 2 squares, never from the first row
+					targets = 0;
+					from = moved == EnumColors.WHITE ? square - 8 : square + 8;
+					if (from >= 8 && from < 56 && (occupied & (1L << from)) == 0) {
+						targets |= 1L << from;
+						if (Bitboards.getY(square) == (moved == EnumColors.WHITE ? 3 : 4))
+							targets |= 1L << (moved == EnumColors.WHITE ? square - 16 : square + 16);
+					}
+					break;
+				case KNIGHT:
+					targets = Bitboards.knightAttacks(square);
+					break;
+				case BISHOP:
+					targets = Bitboards.bishopAttacks(square, occupied);
+					break;
+				case ROOK:
+					targets = Bitboards.rookAttacks(square, occupied);
+					break;
+				case QUEEN:
+					targets = Bitboards.queenAttacks(square, occupied);
+					break;
+				default:
+					targets = Bitboards.kingAttacks(square);
+					break;
+			}
+			targets &= ~occupied;
+			base = (index ^ 1) & ~(63L << (1 + 6 * i));  // The other color moves before
+			while (targets != 0) {
+				from = Long.numberOfTrailingZeros(targets);
+				targets &= targets - 1;
+				before[count++] = (int) (base | (long) from << (1 + 6 * i));
+			}
+		}
+		return count;
+	}
+	
+	// Divide the positions in parts for the threads and wait for all of them
+	private void parallel(final Part part) throws InterruptedException, ExecutionException {
+		ArrayList<Future<?>> tasks = new ArrayList<>();
+		int entries = values.length, parts = threads * PARTS_PER_THREAD, i;
+		for (i = 0; i < parts; i++) {
+			final int from = (int) ((long) entries * i / parts), to = (int) ((long) entries * (i + 1) / parts);
+			tasks.add(pool.submit(new Runnable() {
+				public void run() {
+					part.run(from, to);
+				}
+			}));
+		}
+		for (Future<?> task : tasks)
+			task.get();
+	}
+	
+	public static void main(String args[]) throws IOException, InterruptedException, ExecutionException {
+		ArrayList<String> materials = new ArrayList<>();
+		String folder = "tablebases";
+		int threads = Runtime.getRuntime().availableProcessors(), i;
+		TablebaseGenerator generator;
+		for (i = 0; i < args.length; i++) {
+			if (args[i].equals("-dir") && i + 1 < args.length)
+				folder = args[++i];
+			else if (args[i].equals("-threads") && i + 1 < args.length)
+				threads = Integer.parseInt(args[++i]);
+			else if (args[i].startsWith("-"))
+				throw new IllegalArgumentException("Unknown option: " + args[i]);
+			else
+				materials.add(args[i].toUpperCase());
+		}
+		if (materials.isEmpty()) {
+			System.out.println("Usage: TablebaseGenerator material... [-dir folder] [-threads n]");
+			System.out.println("  material: the pieces of each color after its king, like KQK, KRK, KPK or KBNK");
+			return;
+		}
+		generator = new TablebaseGenerator(Paths.get(folder), threads);
+		for (String material : materials)
+			generator.generate(material);
+	}
+}
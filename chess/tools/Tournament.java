@@ -0,0 +1,641 @@
+package chess.tools;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import chess.board.*;
+import chess.engine.*;
+import chess.pieces.EnumPieces;
+import chess.rules.MoveGenerator;
+import chess.rules.Rules;
+import chess.uci.Uci;
+
+public class Tournament {
+	// Two configurations of the engine play many games against each other, to
+	// know if a change of the search or of the move generator makes the engine
+	// stronger or faster. Each opening is played twice, once with each engine
+	// on each color, and the games run at the same time on all processors:
+	// each worker has its own two engines and its own board. The moves are
+	// made with Board.movePiece and the games end with the rules (after the
+	// last move, Rules.trappedKing and Rules.kingInDanger tell a checkmate from
+	// a stalemate), with the clocks, or with the endgame tables. The results
+	// of the pairs of games give the difference of Elo with its error, and the
+	// SPRT can stop the tournament as soon as the difference is known
+	private static final int MAX_PLIES = 600;  // A longer game is a draw
+	private static final long DARK_SQUARES = 0xAA55AA55AA55AA55L;  // a1 is dark
+	private static final int MAX_DEPTH = 64;  // Depth of the searches that only have a clock
+	private static final int REPORT = 20;  // Games between the reports of the progress
+	private static final double ALPHA = 0.05, BETA = 0.05;  // Errors of the SPRT
+	private static final String OPENINGS[] = {  // Used without a file of openings
+		"r1bqkbnr/1ppp1ppp/p1n5/1B2p3/4P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 0 4",
+		"rnbqkb1r/pp2pppp/3p1n2/8/3NP3/2N5/PPP2PPP/R1BQKB1R b KQkq - 2 5",
+		"rnbqkb1r/ppp2ppp/4pn2/3p4/2PP4/2N5/PP2PPPP/R1BQKBNR w KQkq - 2 4",
+		"rnbqk2r/ppp1ppbp/3p1np1/8/2PPP3/2N5/PP3PPP/R1BQKBNR w KQkq - 0 5",
+		"rnbqkb1r/ppp2ppp/4pn2/3p4/3PP3/2N5/PPP2PPP/R1BQKBNR w KQkq - 2 4",
+		"rn1qkbnr/pp2pppp/2p5/3pPb2/3P4/8/PPP2PPP/RNBQKBNR w KQkq - 1 4",
+		"rnbqkb1r/ppp2ppp/5n2/3pp3/2P5/2N3P1/PP1PPP1P/R1BQKBNR w KQkq - 0 4",
+		"rnbqkb1r/ppp2ppp/4pn2/3p4/8/5NP1/PPPPPPBP/RNBQK2R w KQkq - 0 4",
+		"r1bqk1nr/pppp1ppp/2n5/2b1p3/2B1P3/5N2/PPPP1PPP/RNBQK2R w KQkq - 4 4",
+		"rnbqk2r/pppp1ppp/4pn2/8/1bPP4/2N5/PP2PPPP/R1BQKBNR w KQkq - 2 4"
+	};
+	private Config configs[] = new Config[2];  // Engine A and engine B
+	private List<String> openings = new ArrayList<>();
+	private int games = 1000, concurrency = Runtime.getRuntime().availableProcessors();
+	private long baseTime = -1, increment = 0;  // Milliseconds of the clock, -1 without clock
+	private int moveTime = 0, depth = 0;  // 0 when they are not used
+	private Tablebases tablebases;  // null without adjudication by the tables
+	private GameRecordFile saved;  // null if the games are not saved
+	private boolean sprt = false;
+	private double elo0, elo1;  // The hypotheses of the SPRT
+	private AtomicInteger next = new AtomicInteger();  // The next game to play
+	private volatile boolean stopped = false;
+	// The results, always with the point of view of engine A
+	private int done = 0, wins = 0, draws = 0, losses = 0, pairs = 0;
+	private int pentanomial[] = new int[5];  // Pairs by their half points, from 0 to 4
+	private Map<Integer, Integer> pending = new HashMap<>();  // Half points of the pairs with a game played
+	private Map<String, Integer> endings = new TreeMap<>();  // Games by the reason of their end
+	private long nodes[] = new long[2], nanos[] = new long[2], searches[] = new long[2], depths[] = new long[2];
+	
+	// A configuration of an engine, written like "name=new,hash=16,depth=8".
+	// The keys are name, hash (MB), threads, depth, tablebases (folder), book
+	// (file of chess.tools.BookBuilder) and cmd, the command of other program
+	// that speaks UCI, like an older build of this engine (the command can not
+	// have commas)
+	private static class Config {
+		String name, command, tablebases, book;
+		int hashMB = 16, threads = 1, depth = 0;
+	
+		Config(String name, String spec) {
+			String pair[];
+			this.name = name;
+			for (String option : spec.split(",")) {
+				if (option.trim().isEmpty())
+					continue;
+				pair = option.split("=", 2);
+				if (pair.length != 2)
+					throw new IllegalArgumentException("Wrong engine option: " + option);
+				switch (pair[0].trim()) {
+					case "name":
+						this.name = pair[1].trim();
+						break;
+					case "hash":
+						hashMB = Integer.parseInt(pair[1].trim());
+						break;
+					case "threads":
+						threads = Integer.parseInt(pair[1].trim());
+						break;
+					case "depth":
+						depth = Integer.parseInt(pair[1].trim());
+						break;
+					case "tablebases":
+						tablebases = pair[1].trim();
+						break;
+					case "book":
+						book = pair[1].trim();
+						break;
+					case "cmd":
+						command = pair[1].trim();
+						break;
+					default:
+						throw new IllegalArgumentException("Unknown engine option: " + pair[0]);
+				}
+			}
+		}
+	
+		Player create(Tournament tournament) throws IOException {
+			int maxDepth = depth > 0 ? depth : tournament.depth;
+			if (command != null)
+				return new UciPlayer(this, maxDepth, tournament.moveTime, tournament.increment);
+			return new EnginePlayer(this, maxDepth, tournament.moveTime, tournament.increment);
+		}
+	}
+	
+	// An engine of a worker, it also counts its nodes and the time of its searches
+	private static abstract class Player {
+		long nodes = 0, nanos = 0, searches = 0, depths = 0;
+	
+		abstract void newGame() throws IOException;
+	
+		// The move for the position of the board (position is the same game as
+		// the text of the UCI command "position"), Search.NO_MOVE if there is not.
+		// The times are the milliseconds on the clocks, -1 without clock
+		abstract int think(Board board, String position, long whiteTime, long blackTime) throws IOException;
+	
+		abstract void close();
+	}
+	
+	// The engine of this program, on the thread of the worker
+	private static class EnginePlayer extends Player {
+		private TranspositionTable table;
+		private ParallelSearch search;
+		private OpeningBook book;  // null without book
+		private int maxDepth, moveTime;
+		private long increment;
+	
+		EnginePlayer(Config config, int maxDepth, int moveTime, long increment) throws IOException {
+			this.maxDepth = maxDepth > 0 ? maxDepth : MAX_DEPTH;
+			this.moveTime = moveTime;
+			this.increment = increment;
+			table = new TranspositionTable(config.hashMB);
+			search = new ParallelSearch(table, config.threads);
+			if (config.tablebases != null)
+				search.setTablebases(Tablebases.open(config.tablebases));
+			if (config.book != null)
+				book = new OpeningBook(config.book);
+		}
+	
+		void newGame() {
+			table.clear();
+		}
+	
+		int think(Board board, String position, long whiteTime, long blackTime) {
+			long time = board.getTurn() == EnumColors.WHITE ? whiteTime : blackTime, start = System.nanoTime();
+			int timeMs, move;
+			if (book != null && (move = book.getMove(board)) != Search.NO_MOVE)
+				return move;  // The moves of the book are not searches, so they are not counted
+			if (moveTime > 0)
+				timeMs = moveTime;
+			else if (time >= 0)
+				timeMs = Uci.timeForMove(time, increment, Uci.MOVES_TO_GO);
+			else
+				timeMs = Integer.MAX_VALUE;
+			move = search.findBestMove(board, timeMs, maxDepth);
+			nanos += System.nanoTime() - start;
+			nodes += search.getNodes();
+			depths += search.getDepth();
+			searches++;
+			return move;
+		}
+	
+		void close() {
+			search.shutdown();
+			if (book != null)
+				book.close();
+		}
+	}
+	
+	// Other program that speaks UCI, started once for each worker
+	private static class UciPlayer extends Player {
+		private Process process;
+		private BufferedReader reader;
+		private Writer writer;
+		private String name;
+		private int maxDepth, moveTime;
+		private long increment;
+	
+		UciPlayer(Config config, int maxDepth, int moveTime, long increment) throws IOException {
+			this.name = config.name;
+			this.maxDepth = maxDepth;
+			this.moveTime = moveTime;
+			this.increment = increment;
+			process = new ProcessBuilder(config.command.split("\\s+")).redirectError(ProcessBuilder.Redirect.DISCARD).start();
+			reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+			writer = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+			send("uci");
+			waitFor("uciok");
+			send("setoption name Hash value " + config.hashMB);
+			send("setoption name Threads value " + config.threads);
+			if (config.tablebases != null)
+				send("setoption name Tablebases value " + config.tablebases);
+			if (config.book != null)
+				send("setoption name BookFile value " + config.book);
+			send("isready");
+			waitFor("readyok");
+		}
+	
+		void newGame() throws IOException {
+			send("ucinewgame");
+			send("isready");
+			waitFor("readyok");
+		}
+	
+		int think(Board board, String position, long whiteTime, long blackTime) throws IOException {
+			StringBuilder go = new StringBuilder("go");
+			MoveList moves = new MoveList();
+			long start = System.nanoTime();
+			String line, words[];
+			int i, depth = 0;
+			long count = 0;
+			if (moveTime > 0)
+				go.append(" movetime ").append(moveTime);
+			else if (whiteTime >= 0)
+				go.append(" wtime ").append(whiteTime).append(" btime ").append(blackTime)
+						.append(" winc ").append(increment).append(" binc ").append(increment);
+			if (maxDepth > 0)
+				go.append(" depth ").append(maxDepth);
+			send("position " + position);
+			send(go.toString());
+			while (true) {
+				line = readLine();
+				words = line.trim().split("\\s+");
+				if (words[0].equals("info")) {  // The last depth and count of nodes
+					for (i = 1; i + 1 < words.length; i++) {
+						if (words[i].equals("depth"))
+							depth = Integer.parseInt(words[i + 1]);
+						else if (words[i].equals("nodes"))
+							count = Long.parseLong(words[i + 1]);
+						else if (words[i].equals("pv"))
+							break;
+					}
+				}
+				else if (words[0].equals("bestmove"))
+					break;
+			}
+			nanos += System.nanoTime() - start;
+			nodes += count;
+			depths += depth;
+			searches++;
+			new MoveGenerator(board, board.getTurn()).generateMoves(moves);
+			for (i = 0; i < moves.size(); i++)
+				if (words.length > 1 && Move.toCoordinates(moves.get(i)).equals(words[1]))
+					return moves.get(i);
+			return Search.NO_MOVE;  // Not a valid move
+		}
+	
+		void close() {
+			try {
+				send("quit");
+				if (! process.waitFor(1, TimeUnit.SECONDS))
+					process.destroyForcibly();
+			}
+			catch (IOException | InterruptedException e) {
+				process.destroyForcibly();
+			}
+		}
+	
+		private void send(String command) throws IOException {
+			writer.write(command);
+			writer.write('\n');
+			writer.flush();
+		}
+	
+		private String readLine() throws IOException {
+			String line = reader.readLine();
+			if (line == null)
+				throw new IOException("The engine " + name + " stopped");
+			return line;
+		}
+	
+		private void waitFor(String answer) throws IOException {
+			while (! readLine().trim().equals(answer))
+				;
+		}
+	}
+	
+	// Play the games until all are played or the SPRT stops the tournament
+	private void work() throws IOException {
+		Player players[] = new Player[2];
+		Board board = new Board();
+		GameRecord record = new GameRecord();
+		String reason;
+		int number, i;
+		try {
+			for (i = 0; i < 2; i++)
+				players[i] = configs[i].create(this);
+			while (! stopped && (number = next.getAndIncrement()) < games) {
+				reason = play(number, players, board, record);
+				finish(number, record, reason);
+			}
+		}
+		finally {
+			for (i = 0; i < 2; i++) {
+				if (players[i] == null)
+					continue;
+				players[i].close();
+				addSpeed(i, players[i]);
+			}
+		}
+	}
+	
+	// Play a game from its opening, engine A is white on the even games.
+	// The result is saved on the record, the reason of the end is returned
+	private String play(int number, Player players[], Board board, GameRecord record) throws IOException {
+		String fen = openings.get(number / 2 % openings.size()), reason;
+		StringBuilder position = new StringBuilder("fen ").append(fen).append(" moves");
+		Player white = players[number % 2], black = players[1 - number % 2], player;
+		long clocks[] = {baseTime, baseTime}, elapsed;
+		int plies = 0, move, side;
+		EnumColors turn;
+		Fen.load(board, fen);
+		record.clear();
+		record.setFen(fen);
+		white.newGame();
+		black.newGame();
+		while ((reason = adjudicate(board, plies, record)) == null) {
+			turn = board.getTurn();
+			side = turn.ordinal();
+			player = turn == EnumColors.WHITE ? white : black;
+			elapsed = System.nanoTime();
+			move = player.think(board, position.toString(), clocks[0], clocks[1]);
+			elapsed = (System.nanoTime() - elapsed) / 1000000;
+			if (move == Search.NO_MOVE) {  // The side has moves (see adjudicate), it gave other thing
+				record.setResult(turn == EnumColors.WHITE ? GameRecord.BLACK_WINS : GameRecord.WHITE_WINS);
+				return "illegal move";
+			}
+			if (clocks[side] >= 0) {
+				clocks[side] -= elapsed;
+				if (clocks[side] < 0) {
+					record.setResult(turn == EnumColors.WHITE ? GameRecord.BLACK_WINS : GameRecord.WHITE_WINS);
+					return "time";
+				}
+				clocks[side] += increment;
+			}
+			board.movePiece(move);  // The moves of the game are never undone
+			record.add(move);
+			position.append(' ').append(Move.toCoordinates(move));
+			plies++;
+		}
+		return reason;
+	}
+	
+	// The end of the game on the position, or null if it continues
+	private String adjudicate(Board board, int plies, GameRecord record) {
+		EnumColors turn = board.getTurn();
+		int value, winner = turn == EnumColors.WHITE ? GameRecord.WHITE_WINS : GameRecord.BLACK_WINS,
+				loser = turn == EnumColors.WHITE ? GameRecord.BLACK_WINS : GameRecord.WHITE_WINS;
+		if (Rules.trappedKing(board, turn)) {
+			record.setResult(Rules.kingInDanger(board, turn) ? loser : GameRecord.DRAW);
+			return Rules.kingInDanger(board, turn) ? "checkmate" : "stalemate";
+		}
+		record.setResult(GameRecord.DRAW);
+		if (board.threefoldRepetition())
+			return "repetition";
+		if (board.fiftyMovesRule())
+			return "fifty moves";
+		if (tablebases != null && (value = tablebases.probe(board)) != Tablebase.NOT_FOUND) {
+			if (value != Tablebase.DRAW)
+				record.setResult(Tablebases.toScore(value, 0) > 0 ? winner : loser);
+			return "tablebases";
+		}
+		if (deadPosition(board))
+			return "material";
+		if (plies >= MAX_PLIES)
+			return "length";
+		record.setResult(GameRecord.UNKNOWN);
+		return null;
+	}
+	
+	// No move can ever give a mate: only the kings and one bishop or knight,
+	// or only bishops on squares of the same color. Other endings like KN vs KN
+	// can still end with a mate, they are left to the rules, the tables or MAX_PLIES
+	private static boolean deadPosition(Board board) {
+		long knights = 0, bishops = 0;
+		for (EnumColors color : EnumColors.values()) {
+			if (board.getBitboard(EnumPieces.PAWN, color) != 0 || board.getBitboard(EnumPieces.ROOK, color) != 0
+					|| board.getBitboard(EnumPieces.QUEEN, color) != 0)
+				return false;
+			knights |= board.getBitboard(EnumPieces.KNIGHT, color);
+			bishops |= board.getBitboard(EnumPieces.BISHOP, color);
+		}
+		if (Long.bitCount(knights | bishops) <= 1)
+			return true;
+		return knights == 0 && ((bishops & DARK_SQUARES) == 0 || (bishops & ~DARK_SQUARES) == 0);
+	}
+	
+	// Count the result of a game, the pairs are counted when both games end
+	private synchronized void finish(int number, GameRecord record, String reason) throws IOException {
+		int points;
+		Integer first;
+		if (record.getResult() == GameRecord.DRAW)
+			points = 1;
+		else
+			points = (record.getResult() == GameRecord.WHITE_WINS) == (number % 2 == 0) ? 2 : 0;
+		if (points == 2)
+			wins++;
+		else if (points == 1)
+			draws++;
+		else
+			losses++;
+		done++;
+		endings.put(reason, endings.getOrDefault(reason, 0) + 1);
+		first = pending.remove(number / 2);
+		if (first == null)
+			pending.put(number / 2, points);
+		else {
+			pentanomial[first + points]++;
+			pairs++;
+		}
+		if (saved != null)
+			saved.append(record);
+		if (sprt && ! stopped && (llr() >= Math.log((1 - BETA) / ALPHA) || llr() <= Math.log(BETA / (1 - ALPHA)))) {
+			stopped = true;  // The games that are being played are also counted
+			System.out.println("The SPRT ended after " + done + " games");
+		}
+		if (done % REPORT == 0)
+			System.out.println(progress());
+	}
+	
+	private synchronized void addSpeed(int engine, Player player) {
+		nodes[engine] += player.nodes;
+		nanos[engine] += player.nanos;
+		searches[engine] += player.searches;
+		depths[engine] += player.depths;
+	}
+	
+	// The mean score of the pairs, from 0 to 1
+	private double mean() {
+		double sum = 0;
+		int i;
+		for (i = 0; i < 5; i++)
+			sum += pentanomial[i] * i / 4.0;
+		return sum / pairs;
+	}
+	
+	// The variance of the score of a pair, the two games of a pair share the
+	// opening, so the pairs are used instead of the games
+	private double variance() {
+		double mean = mean(), sum = 0;
+		int i;
+		for (i = 0; i < 5; i++)
+			sum += pentanomial[i] * (i / 4.0 - mean) * (i / 4.0 - mean);
+		return sum / pairs;
+	}
+	
+	// The logarithm of the likelihood ratio of elo1 against elo0, with the
+	// normal approximation of the results of the pairs
+	private double llr() {
+		double s0 = expected(elo0), s1 = expected(elo1), variance;
+		if (pairs == 0 || (variance = variance()) == 0)
+			return 0;
+		return pairs * (s1 - s0) * (2 * mean() - s0 - s1) / (2 * variance);
+	}
+	
+	private static double expected(double elo) {
+		return 1 / (1 + Math.pow(10, -elo / 400));
+	}
+	
+	private static double elo(double score) {
+		score = Math.max(1e-6, Math.min(1 - 1e-6, score));
+		return -400 * Math.log10(1 / score - 1);
+	}
+	
+	// The difference of Elo with the margin of 95%
+	private String eloText() {
+		double mean, margin;
+		if (pairs == 0)
+			return "Elo -";
+		mean = mean();
+		margin = 1.96 * Math.sqrt(variance() / pairs);
+		return String.format("Elo %.1f +/- %.1f", elo(mean), (elo(mean + margin) - elo(mean - margin)) / 2);
+	}
+	
+	private synchronized String progress() {
+		return String.format("Games %d: +%d =%d -%d  %s%s", done, wins, draws, losses, eloText(),
+				sprt ? String.format("  LLR %.2f [%.2f, %.2f]", llr(), Math.log(BETA / (1 - ALPHA)), Math.log((1 - BETA) / ALPHA)) : "");
+	}
+	
+	private void report(long elapsed) {
+		double llr;
+		int i;
+		System.out.println();
+		System.out.printf("%s vs %s, %d games in %d s%n", configs[0].name, configs[1].name, done, elapsed / 1000000000L);
+		System.out.printf("+%d =%d -%d, score %.1f%%%n", wins, draws, losses, done == 0 ? 0 : 100.0 * (wins + draws / 2.0) / done);
+		System.out.println("Pairs (0 to 2 points): " + Arrays.toString(pentanomial));
+		System.out.println(eloText() + " (95%)");
+		if (sprt) {
+			llr = llr();
+			System.out.printf("SPRT [%.1f, %.1f]: LLR %.2f, %s%n", elo0, elo1, llr,
+					llr >= Math.log((1 - BETA) / ALPHA) ? "H1 accepted"
+							: llr <= Math.log(BETA / (1 - ALPHA)) ? "H0 accepted" : "no decision");
+		}
+		System.out.println("Endings: " + endings);
+		for (i = 0; i < 2; i++)
+			if (searches[i] > 0)
+				System.out.printf("%s: %d nodes/s, depth %.1f, %.1f ms per move%n", configs[i].name,
+						(long) (nodes[i] / Math.max(nanos[i] / 1e9, 1e-9)), (double) depths[i] / searches[i], nanos[i] / 1e6 / searches[i]);
+	}
+	
+	// A line of the file of openings is a FEN or an EPD, the operations of
+	// an EPD are removed and the move counters added
+	private static String toFen(String line) {
+		String words[] = line.trim().split("\\s+");
+		if (words.length >= 6 && words[4].matches("\\d+") && words[5].matches("\\d+"))
+			return String.join(" ", Arrays.copyOf(words, 6));
+		if (words.length < 4)
+			throw new IllegalArgumentException("Wrong opening: " + line);
+		return String.join(" ", Arrays.copyOf(words, 4)) + " 0 1";
+	}
+	
+	// Usage: Tournament [-a spec] [-b spec] [-games n] [-concurrency n] [-tc s+inc]
+	//   [-movetime ms] [-depth n] [-openings file] [-sprt elo0,elo1] [-tablebases folder] [-save file]
+	public static void main(String args[]) throws IOException, InterruptedException {
+		Tournament tournament = new Tournament();
+		String a = "name=A", b = "name=B", file = null, folder = null, save = null, values[];
+		ExecutorService workers;
+		List<Future<?>> tasks = new ArrayList<>();
+		Board board = new Board();
+		long start;
+		int i;
+		for (i = 0; i < args.length; i++) {
+			if (args[i].equals("-a") && i + 1 < args.length)
+				a = args[++i];
+			else if (args[i].equals("-b") && i + 1 < args.length)
+				b = args[++i];
+			else if (args[i].equals("-games") && i + 1 < args.length)
+				tournament.games = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-concurrency") && i + 1 < args.length)
+				tournament.concurrency = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-tc") && i + 1 < args.length) {
+				values = args[++i].split("\\+");
+				tournament.baseTime = (long) (Double.parseDouble(values[0]) * 1000);
+				tournament.increment = values.length > 1 ? (long) (Double.parseDouble(values[1]) * 1000) : 0;
+			}
+			else if (args[i].equals("-movetime") && i + 1 < args.length)
+				tournament.moveTime = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-depth") && i + 1 < args.length)
+				tournament.depth = Integer.parseInt(args[++i]);
+			else if (args[i].equals("-openings") && i + 1 < args.length)
+				file = args[++i];
+			else if (args[i].equals("-sprt") && i + 1 < args.length) {
+				values = args[++i].split(",");
+				tournament.elo0 = Double.parseDouble(values[0]);
+				tournament.elo1 = Double.parseDouble(values[1]);
+				tournament.sprt = true;
+			}
+			else if (args[i].equals("-tablebases") && i + 1 < args.length)
+				folder = args[++i];
+			else if (args[i].equals("-save") && i + 1 < args.length)
+				save = args[++i];
+			else if (args[i].equals("-help")) {
+				System.out.println("Usage: Tournament [-a spec] [-b spec] [-games n] [-concurrency n] [-tc s+inc]");
+				System.out.println("    [-movetime ms] [-depth n] [-openings file] [-sprt elo0,elo1] [-tablebases folder] [-save file]");
+				System.out.println("  spec: name=A,hash=16,threads=1,depth=n,tablebases=folder,book=file,cmd=program that speaks UCI");
+				System.out.println("  Without -tc, -movetime or -depth the clock is 10+0.1");
+				return;
+			}
+			else
+				throw new IllegalArgumentException("Unknown option: " + args[i]);
+		}
+		tournament.configs[0] = new Config("A", a);
+		tournament.configs[1] = new Config("B", b);
+		if (tournament.baseTime < 0 && tournament.moveTime <= 0 && tournament.depth <= 0
+				&& (tournament.configs[0].depth <= 0 || tournament.configs[1].depth <= 0)) {
+			tournament.baseTime = 10000;
+			tournament.increment = 100;
+		}
+		if (file == null)
+			tournament.openings.addAll(Arrays.asList(OPENINGS));
+		else
+			for (String line : Files.readAllLines(Paths.get(file), StandardCharsets.UTF_8))
+				if (! line.trim().isEmpty() && ! line.trim().startsWith("#"))
+					tournament.openings.add(toFen(line));
+		if (tournament.openings.isEmpty())
+			throw new IllegalArgumentException("There are no openings");
+		for (String fen : tournament.openings)
+			Fen.load(board, fen);  // A wrong opening is found before the games
+		tournament.games += tournament.games % 2;  // Both colors for each opening
+		tournament.concurrency = Math.max(1, Math.min(tournament.concurrency, tournament.games / 2));
+		if (folder != null)
+			tournament.tablebases = Tablebases.open(folder);
+		if (save != null)
+			tournament.saved = new GameRecordFile(save);
+		System.out.printf("%s vs %s: %d games, %d at the same time, %d openings%n", tournament.configs[0].name,
+				tournament.configs[1].name, tournament.games, tournament.concurrency, tournament.openings.size());
+		workers = Executors.newFixedThreadPool(tournament.concurrency);
+		start = System.nanoTime();
+		for (i = 0; i < tournament.concurrency; i++) {
+			tasks.add(workers.submit(new Runnable() {
+				public void run() {
+					try {
+						tournament.work();
+					}
+					catch (IOException e) {
+						tournament.stopped = true;
+						throw new IllegalStateException(e.getMessage(), e);
+					}
+				}
+			}));
+		}
+		try {
+			for (Future<?> task : tasks)
+				task.get();
+		}
+		catch (ExecutionException e) {
+			System.err.println("A worker failed: " + e.getCause().getMessage());
+		}
+		finally {
+			workers.shutdown();
+			if (tournament.saved != null)
+				tournament.saved.close();
+		}
+		tournament.report(System.nanoTime() - start);
+	}
+}
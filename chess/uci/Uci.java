@@ -0,0 +1,366 @@
+package chess.uci;
+import java.io.BufferedReader;
+import java.io.FileDescriptor;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ForkJoinPool;
+
+import chess.board.*;
+import chess.engine.*;
+import chess.rules.MoveGenerator;
+import chess.tools.Perft;
+
+public class Uci {
+	// The engine without window: it reads the commands of the Universal Chess
+	// Interface from the standard input and answers on the standard output,
+	// so the programs that run tournaments or analyze games can use it.
+	// Only the packages of the rules and the engine are used, never AWT or
+	// Swing, so it starts fast and runs on servers without display.
+	// The search runs on other thread, so "stop" is read while it searches
+	public static final String NAME = "Chess-JavaProject", AUTHOR = "LuisCuaquentziAvendano";
+	private static final int DEFAULT_HASH = 32, MAX_HASH = 1024, MAX_THREADS = 64;
+	private static final int MOVE_OVERHEAD = 50;  // Milliseconds for the answer to arrive
+	public static final int MOVES_TO_GO = 30;  // Moves until the next time control when it is not given
+	private PrintStream out;
+	private Board board = new Board();
+	private int hashMB = DEFAULT_HASH, threads = 1;
+	private TranspositionTable table;  // Created on the first search, after the options
+	private ParallelSearch search;
+	private Tablebases tablebases = new Tablebases();
+	private OpeningBook book;  // null without book file (see chess.tools.BookBuilder)
+	private boolean ownBook = true;  // The engine plays the moves of its book
+	private Thread searching;  // The thread of the current search, null if there is not
+	private boolean waiting;  // An infinite search ended and waits for "stop"
+	private volatile long start;  // nanoTime when the current search was started
+	
+	public Uci(PrintStream out) {
+		this.out = out;
+		board.setDefaultBoard();
+	}
+	
+	public static void main(String args[]) throws IOException {
+		BufferedReader reader = new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8));
+		Uci uci = new Uci(new PrintStream(new FileOutputStream(FileDescriptor.out), true, StandardCharsets.UTF_8));
+		String line;
+		while ((line = reader.readLine()) != null)
+			if (! uci.execute(line))
+				break;
+		uci.stop();
+	}
+	
+	// Execute a command, false if the program must end
+	public boolean execute(String line) {
+		String words[] = line.trim().split("\\s+");
+		try {
+			switch (words[0]) {
+				case "uci":
+					send("id name " + NAME);
+					send("id author " + AUTHOR);
+					send("option name Hash type spin default " + DEFAULT_HASH + " min 1 max " + MAX_HASH);
+					send("option name Threads type spin default 1 min 1 max " + MAX_THREADS);
+					send("option name Tablebases type string default <empty>");
+					send("option name OwnBook type check default true");
+					send("option name BookFile type string default <empty>");
+					send("uciok");
+					break;
+				case "isready":
+					send("readyok");
+					break;
+				case "setoption":
+					setOption(words);
+					break;
+				case "ucinewgame":
+					stop();
+					if (table != null)
+						table.clear();
+					break;
+				case "position":
+					stop();
+					position(words);
+					break;
+				case "go":
+					stop();
+					if (words.length > 2 && words[1].equals("perft"))
+						perft(Integer.parseInt(words[2]));
+					else
+						go(words);
+					break;
+				case "perft":
+					stop();
+					perft(Integer.parseInt(words[1]));
+					break;
+				case "stop":
+					stop();
+					break;
+				case "quit":
+					return false;
+				case "":
+					break;
+				default:
+					send("info string Unknown command: " + words[0]);
+					break;
+			}
+		}
+		catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+			send("info string " + e.getMessage());
+		}
+		return true;
+	}
+	
+	// setoption name <name> value <value>
+	private void setOption(String words[]) {
+		String name = "", value = "";
+		int i = 1;
+		if (i < words.length && words[i].equals("name"))
+			i++;
+		for (; i < words.length && ! words[i].equals("value"); i++)
+			name += (name.isEmpty() ? "" : " ") + words[i];
+		for (i++; i < words.length; i++)
+			value += (value.isEmpty() ? "" : " ") + words[i];
+		stop();
+		switch (name.toLowerCase()) {
+			case "hash":
+				hashMB = Math.max(1, Math.min(MAX_HASH, Integer.parseInt(value)));
+				table = null;  // A new table with the size on the next search
+				break;
+			case "threads":
+				threads = Math.max(1, Math.min(MAX_THREADS, Integer.parseInt(value)));
+				table = null;
+				break;
+			case "tablebases":
+				try {
+					tablebases = value.isEmpty() || value.equals("<empty>") ? new Tablebases() : Tablebases.open(value);
+				}
+				catch (IOException e) {
+					tablebases = new Tablebases();
+					send("info string The tables can not be read: " + e.getMessage());
+				}
+				if (search != null)
+					search.setTablebases(tablebases);
+				send("info string " + tablebases.size() + " endgame tables");
+				break;
+			case "ownbook":
+				ownBook = Boolean.parseBoolean(value);
+				break;
+			case "bookfile":
+				if (book != null)
+					book.close();
+				book = null;
+				if (value.isEmpty() || value.equals("<empty>"))
+					break;
+				try {
+					book = new OpeningBook(value);
+					send("info string " + book.size() + " moves on the book");
+				}
+				catch (IOException e) {
+					send("info string The book can not be read: " + e.getMessage());
+				}
+				break;
+			default:
+				throw new IllegalArgumentException("Unknown option: " + name);
+		}
+	}
+	
+	// position startpos|fen <fen> [moves <move>...]
+	// The position is made on a new board that is only used when all of it
+	// is valid, never search a board that is half loaded
+	private void position(String words[]) {
+		StringBuilder fen = new StringBuilder();
+		Board loaded = new Board();
+		int i = 2;
+		try {
+			if (words[1].equals("startpos"))
+				loaded.setDefaultBoard();
+			else if (words[1].equals("fen")) {
+				for (; i < words.length && ! words[i].equals("moves"); i++)
+					fen.append(words[i]).append(' ');
+				Fen.load(loaded, fen.toString());
+			}
+			else
+				throw new IllegalArgumentException("Wrong position: " + words[1]);
+			if (i < words.length && words[i].equals("moves"))
+				for (i++; i < words.length; i++)
+					loaded.makeMove(parseMove(loaded, words[i]));
+		}
+		catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+			board.setDefaultBoard();
+			throw e;
+		}
+		board = loaded;
+	}
+	
+	// The valid move of the board with the text of the coordinates, like "e2e4" or "e7e8q"
+	private static int parseMove(Board board, String text) {
+		MoveList moves = new MoveList();
+		int i;
+		new MoveGenerator(board, board.getTurn()).generateMoves(moves);
+		for (i = 0; i < moves.size(); i++)
+			if (Move.toCoordinates(moves.get(i)).equals(text))
+				return moves.get(i);
+		throw new IllegalArgumentException("Illegal move: " + text);
+	}
+	
+	// go [wtime n] [btime n] [winc n] [binc n] [movestogo n] [movetime n] [depth n] [infinite]
+	private void go(String words[]) {
+		final Board position = board.cloneBoard();
+		final boolean infinite;
+		final int timeMs, maxDepth, number;
+		long time = -1, increment = 0, moveTime = -1;
+		int i, movesToGo = MOVES_TO_GO, depth = 64, move;
+		boolean forever = false, white = board.getTurn() == EnumColors.WHITE;
+		for (i = 1; i < words.length; i++) {
+			switch (words[i]) {
+				case "wtime":
+				case "btime":
+					if (words[i].equals(white ? "wtime" : "btime"))
+						time = Long.parseLong(words[i + 1]);
+					i++;
+					break;
+				case "winc":
+				case "binc":
+					if (words[i].equals(white ? "winc" : "binc"))
+						increment = Long.parseLong(words[i + 1]);
+					i++;
+					break;
+				case "movestogo":
+					movesToGo = Math.max(1, Integer.parseInt(words[++i]));
+					break;
+				case "movetime":
+					moveTime = Long.parseLong(words[++i]);
+					break;
+				case "depth":
+					depth = Integer.parseInt(words[++i]);
+					break;
+				case "infinite":
+					forever = true;
+					break;
+				default:
+					break;  // nodes, mate, ponder and searchmoves are not used
+			}
+		}
+		if (moveTime >= 0)
+			timeMs = (int) Math.max(1, moveTime - MOVE_OVERHEAD);
+		else if (time >= 0 && ! forever)
+			timeMs = timeForMove(time, increment, movesToGo);
+		else
+			timeMs = Integer.MAX_VALUE;
+		maxDepth = depth;
+		infinite = forever;
+		// A move of the book is sent at once, the analysis without end always searches
+		if (ownBook && book != null && ! infinite && (move = book.getMove(position)) != Search.NO_MOVE) {
+			send("info string book move");
+			send("bestmove " + Move.toCoordinates(move));
+			return;
+		}
+		if (table == null) {
+			if (search != null)
+				search.shutdown();
+			table = new TranspositionTable(hashMB);
+			search = new ParallelSearch(table, threads);
+			search.setTablebases(tablebases);
+			search.setListener(new Search.Listener() {
+				public void depthDone(int depth, int score, int pv[]) {
+					sendInfo(depth, score, pv);
+				}
+			});
+		}
+		start = System.nanoTime();
+		waiting = infinite;
+		number = search.prepare();  // From now on "stop" ends this search, even before its thread starts
+		searching = new Thread(new Runnable() {
+			public void run() {
+				int move = search.findBestMove(position, timeMs, maxDepth, number);
+				waitStop();  // The answer of an infinite search is only sent after "stop"
+				send("bestmove " + (move == Search.NO_MOVE ? "0000" : Move.toCoordinates(move)));
+			}
+		}, "search");
+		searching.start();
+	}
+	
+	// info of a depth that ended, sent while the search goes on
+	private void sendInfo(int depth, int score, int pv[]) {
+		StringBuilder line = new StringBuilder("info depth ").append(depth);
+		long elapsed = Math.max(1, (System.nanoTime() - start) / 1000000), nodes = search.getNodes();
+		int i;
+		line.append(" score ").append(score(score)).append(" nodes ").append(nodes).append(" time ").append(elapsed)
+				.append(" nps ").append(nodes * 1000 / elapsed).append(" pv");
+		for (i = 0; i < pv.length; i++)
+			line.append(' ').append(Move.toCoordinates(pv[i]));
+		send(line.toString());
+	}
+	
+	// The milliseconds for a move with the time left on the clock, a part
+	// of the clock and most of the increment, never all of the clock
+	public static int timeForMove(long time, long increment, int movesToGo) {
+		return (int) Math.max(1, Math.min(time / movesToGo + increment * 3 / 4, time - MOVE_OVERHEAD));
+	}
+	
+	// The score as centipawns or as moves until the mate
+	private static String score(int score) {
+		int plies = Search.MATE - Math.abs(score);
+		if (plies >= Search.MAX_PLY)
+			return "cp " + score;
+		return "mate " + (score > 0 ? (plies + 1) / 2 : -(plies / 2));
+	}
+	
+	private synchronized void waitStop() {
+		while (waiting) {
+			try {
+				wait();
+			}
+			catch (InterruptedException e) {
+				return;
+			}
+		}
+	}
+	
+	// Stop the search and wait for its "bestmove"
+	public void stop() {
+		Thread current = searching;
+		if (current == null)
+			return;
+		synchronized (this) {
+			waiting = false;
+			notifyAll();
+		}
+		search.stop();
+		try {
+			current.join();
+		}
+		catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		searching = null;
+	}
+	
+	// perft <depth>: the positions after each move and the total
+	private void perft(int depth) {
+		ForkJoinPool pool = new ForkJoinPool(threads);
+		MoveList moves = new MoveList();
+		long start = System.nanoTime(), counts[], nodes = 0;
+		int i;
+		if (depth < 1)
+			throw new IllegalArgumentException("Wrong depth: " + depth);
+		try {
+			new MoveGenerator(board, board.getTurn()).generateMoves(moves);
+			counts = new Perft(16).divide(board, board.getTurn(), depth, pool);
+		}
+		finally {
+			pool.shutdown();
+		}
+		for (i = 0; i < counts.length; i++) {
+			send(Move.toCoordinates(moves.get(i)) + ": " + counts[i]);
+			nodes += counts[i];
+		}
+		send("");
+		send("Nodes searched: " + nodes);
+		send("info string " + (System.nanoTime() - start) / 1000000 + " ms");
+	}
+	
+	private synchronized void send(String text) {
+		out.println(text);
+	}
+}